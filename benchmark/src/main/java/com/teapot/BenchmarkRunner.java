@@ -0,0 +1,24 @@
+package com.teapot;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * JMH基准测试入口
+ * 在命令行参数的基础上默认开启gc分析器，每个基准同时输出吞吐量（Throughput）、
+ * 延迟分位数（SampleTime）以及内存分配速率（gc.alloc.rate）
+ * 用法：java -jar benchmark/target/benchmarks.jar [JMH参数，例如 GenericSearch -p size=500]
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions commandLineOptions = new CommandLineOptions(args);
+        Options options = new OptionsBuilder()
+                .parent(commandLineOptions)
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,97 @@
+package com.teapot.chapter2;
+
+import com.teapot.chapter2.GenericSearch.Node;
+import com.teapot.chapter2.IntGenericSearch.IntSolution;
+import com.teapot.chapter2.maze.CompactMaze;
+import com.teapot.chapter2.maze.Maze;
+import com.teapot.chapter2.maze.Maze.MazeLocation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * GenericSearch的基准测试：在不同规模的随机迷宫上比较dfs、bfs和astar
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class GenericSearchBenchmark {
+    @Param({"100", "500", "1000"})
+    public int size;
+
+    private Maze maze;
+    private CompactMaze compactMaze;
+    private MazeLocation start;
+    private MazeLocation goal;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        start = new MazeLocation(0, 0);
+        goal = new MazeLocation(size - 1, size - 1);
+        // 随机迷宫不一定有解，重新生成直到起点和终点连通
+        do {
+            maze = new Maze(size, size, start, goal, 0.2);
+        } while (GenericSearch.bfs(start, maze::goalTest, maze::successors) == null);
+        long seed = 42;
+        do {
+            compactMaze = new CompactMaze(size, size, 0.2, seed++);
+        } while (IntGenericSearch.bfs(compactMaze.getStart(), compactMaze::goalTest, compactMaze::successors, 4) == null);
+    }
+
+    @Benchmark
+    public Node<MazeLocation> dfs() {
+        return GenericSearch.dfs(start, maze::goalTest, maze::successors);
+    }
+
+    @Benchmark
+    public Node<MazeLocation> bfs() {
+        return GenericSearch.bfs(start, maze::goalTest, maze::successors);
+    }
+
+    @Benchmark
+    public Node<MazeLocation> parallelBfs() {
+        return GenericSearch.parallelBfs(start, maze::goalTest, maze::successors);
+    }
+
+    @Benchmark
+    public Node<MazeLocation> bidirectionalBfs() {
+        return GenericSearch.bidirectionalBfs(start, goal, maze::successors, maze::successors);
+    }
+
+    /**
+     * 所有A*基准都使用同一个可采纳的启发函数（坐标差取绝对值），它们展开的节点数才可以比较；
+     * Maze.manhattanDistance(MazeLocation)没有取绝对值
+     */
+    private double heuristic(MazeLocation ml) {
+        return maze.manhattanDistance(maze.toId(ml));
+    }
+
+    @Benchmark
+    public Node<MazeLocation> astar() {
+        return GenericSearch.astar(start, maze::goalTest, maze::successors, this::heuristic);
+    }
+
+    @Benchmark
+    public Node<MazeLocation> indexedAstar() {
+        return GenericSearch.astar(start, maze::goalTest, maze::successors, this::heuristic, (from, to) -> 1.0);
+    }
+
+    @Benchmark
+    public IntSolution intBfs() {
+        return IntGenericSearch.bfs(maze.toId(start), maze::goalTest, maze::successors, 4);
+    }
+
+    @Benchmark
+    public IntSolution intAstar() {
+        return IntGenericSearch.astar(maze.toId(start), maze::goalTest, maze::successors, 4, maze::manhattanDistance);
+    }
+
+    @Benchmark
+    public IntSolution compactAstar() {
+        return IntGenericSearch.astar(compactMaze.getStart(), compactMaze::goalTest, compactMaze::successors, 4,
+                compactMaze::manhattanDistance);
+    }
+}
@@ -0,0 +1,72 @@
+package com.teapot.chapter2.maze;
+
+import com.teapot.chapter2.GenericSearch;
+import com.teapot.chapter2.GenericSearch.Node;
+import com.teapot.chapter2.IntGenericSearch;
+import com.teapot.chapter2.IntGenericSearch.IntSolution;
+import com.teapot.chapter2.maze.Maze.MazeLocation;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 跳点搜索与A*的对比：sparseness为0时是空旷的迷宫，越大障碍越多
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JumpPointSearchBenchmark {
+    @Param({"256", "1024"})
+    public int size;
+
+    @Param({"0.0", "0.1", "0.3"})
+    public double sparseness;
+
+    private Maze maze;
+    private MazeLocation start;
+    private MazeLocation goal;
+    private JumpPointSearch jps4;
+    private JumpPointSearch jps8;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        start = new MazeLocation(0, 0);
+        goal = new MazeLocation(size - 1, size - 1);
+        do {
+            maze = new Maze(size, size, start, goal, sparseness);
+        } while (IntGenericSearch.bfs(maze.toId(start), maze::goalTest, maze::successors, 4) == null);
+        jps4 = new JumpPointSearch(maze, false);
+        jps8 = new JumpPointSearch(maze, true);
+    }
+
+    /**
+     * 到终点的曼哈顿距离（Maze.manhattanDistance没有取绝对值，这里使用与跳点搜索相同的启发函数）
+     */
+    private double manhattan(MazeLocation ml) {
+        return Math.abs(ml.row - goal.row) + Math.abs(ml.column - goal.column);
+    }
+
+    @Benchmark
+    public Node<MazeLocation> astar() {
+        return GenericSearch.astar(start, maze::goalTest, maze::successors, this::manhattan);
+    }
+
+    @Benchmark
+    public IntSolution intAstar() {
+        return IntGenericSearch.astar(maze.toId(start), maze::goalTest, maze::successors, 4,
+                id -> manhattan(maze.fromId(id)));
+    }
+
+    @Benchmark
+    public int[] jps4() {
+        return jps4.search(maze.toId(start), maze.toId(goal));
+    }
+
+    @Benchmark
+    public int[] jps8() {
+        return jps8.search(maze.toId(start), maze.toId(goal));
+    }
+}
@@ -0,0 +1,89 @@
+package com.teapot.chapter3.csp;
+
+import com.teapot.chapter3.eight_queens.QueensConstraint;
+import com.teapot.chapter3.graph_coloring.MapColoringConstraint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * CSP.backtrackingSearch的基准测试：n皇后问题和随机平面地图着色问题，比较不同的变量选择策略和约束传播方式
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CSPBenchmark {
+    @Param({"8", "12", "16", "20"})
+    public int size;
+
+    @Param({"static", "mrv", "domwdeg"})
+    public String strategy;
+
+    @Param({"NONE", "FORWARD_CHECKING", "AC2001"})
+    public Propagation propagation;
+
+    private CSP<Integer, Integer> queens;
+    private CSP<String, String> coloring;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Integer> columns = new ArrayList<>();
+        List<Integer> rows = new ArrayList<>();
+        for (int i = 1; i <= size; i++) {
+            columns.add(i);
+            rows.add(i);
+        }
+        Map<Integer, List<Integer>> queenDomains = new HashMap<>();
+        for (int column : columns) {
+            queenDomains.put(column, rows);
+        }
+        queens = new CSP<>(columns, queenDomains);
+        queens.addConstraint(new QueensConstraint(columns));
+
+        // size x size的网格地图，相邻区域颜色不同，四种颜色必然有解
+        List<String> regions = new ArrayList<>();
+        Map<String, List<String>> colorDomains = new HashMap<>();
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                String region = r + "," + c;
+                regions.add(region);
+                colorDomains.put(region, List.of("red", "green", "blue", "yellow"));
+            }
+        }
+        coloring = new CSP<>(regions, colorDomains);
+        for (int r = 0; r < size; r++) {
+            for (int c = 0; c < size; c++) {
+                if (c + 1 < size) {
+                    coloring.addConstraint(new MapColoringConstraint(r + "," + c, r + "," + (c + 1)));
+                }
+                if (r + 1 < size) {
+                    coloring.addConstraint(new MapColoringConstraint(r + "," + c, (r + 1) + "," + c));
+                }
+            }
+        }
+
+        queens.setPropagation(propagation);
+        coloring.setPropagation(propagation);
+        if (strategy.equals("mrv")) {
+            queens.setVariableSelector(Heuristics.minimumRemainingValues());
+            coloring.setVariableSelector(Heuristics.minimumRemainingValues());
+        } else if (strategy.equals("domwdeg")) {
+            queens.setVariableSelector(Heuristics.domWdeg());
+            coloring.setVariableSelector(Heuristics.domWdeg());
+        }
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> queens() {
+        return queens.backtrackingSearch();
+    }
+
+    @Benchmark
+    public Map<String, String> mapColoring() {
+        return coloring.backtrackingSearch();
+    }
+}
@@ -0,0 +1,46 @@
+package com.teapot.chapter3.csp;
+
+import com.teapot.chapter3.eight_queens.IntQueensConstraint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 位集合值域的IntCSP基准测试，与CSPBenchmark中的n皇后问题对照
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IntCSPBenchmark {
+    @Param({"8", "12", "16", "20"})
+    public int size;
+
+    private IntCSP queens;
+    private IntCSP sendMoreMoney;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queens = new IntCSP(size, size);
+        queens.addConstraint(new IntQueensConstraint(size));
+
+        // S E N D M O R Y
+        int[] letters = {0, 1, 2, 3, 4, 5, 6, 7};
+        sendMoreMoney = new IntCSP(letters.length, 10);
+        sendMoreMoney.addConstraint(new IntAllDifferent(letters));
+        sendMoreMoney.addConstraint(new IntLinearEquation(new int[]{1000, 91, -90, 1, -9000, -900, 10, -1}, letters, 0));
+        sendMoreMoney.restrict(4, 1, 1);
+    }
+
+    @Benchmark
+    public int[] queens() {
+        return queens.solve();
+    }
+
+    @Benchmark
+    public int[] sendMoreMoney() {
+        return sendMoreMoney.solve();
+    }
+}
@@ -0,0 +1,68 @@
+package com.teapot.chapter4.weighted_graph;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 收缩层次的基准测试：在带随机权重的网格（近似道路网）上比较点到点查询与提前停止的Dijkstra
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ContractionHierarchyBenchmark {
+    // 网格的边长
+    @Param({"100", "200"})
+    public int side;
+
+    private CsrGraph<Integer> graph;
+    private ContractionHierarchy hierarchy;
+    private ContractionHierarchy.Query query;
+    private int[] sources, targets;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        CsrGraph.Builder<Integer> builder = new CsrGraph.Builder<>();
+        for (int v = 0; v < side * side; v++) {
+            builder.addVertex(v);
+        }
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                int v = y * side + x;
+                if (x + 1 < side) {
+                    builder.addEdge(v, v + 1, 1 + random.nextFloat() * 100);
+                }
+                if (y + 1 < side) {
+                    builder.addEdge(v, v + side, 1 + random.nextFloat() * 100);
+                }
+            }
+        }
+        graph = builder.build();
+        hierarchy = ContractionHierarchy.build(graph);
+        query = hierarchy.newQuery();
+        sources = new int[1024];
+        targets = new int[1024];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = random.nextInt(side * side);
+            targets[i] = random.nextInt(side * side);
+        }
+    }
+
+    @Benchmark
+    public double query() {
+        int i = next++ & (sources.length - 1);
+        return query.distance(sources[i], targets[i]);
+    }
+
+    @Benchmark
+    public double dijkstra() {
+        int i = next++ & (sources.length - 1);
+        return graph.dijkstra(sources[i], targets[i]).distances[targets[i]];
+    }
+}
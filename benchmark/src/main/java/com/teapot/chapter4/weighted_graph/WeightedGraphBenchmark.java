@@ -0,0 +1,96 @@
+package com.teapot.chapter4.weighted_graph;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WeightedGraph的基准测试：在随机连通图上运行dijkstra和mst，并与CSR格式的CsrGraph比较
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WeightedGraphBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int vertexCount;
+
+    // 每个顶点额外的随机边数
+    @Param({"4"})
+    public int degree;
+
+    private WeightedGraph<Integer> graph;
+    private CsrGraph<Integer> csr;
+    // 批量计算最短路径树的根
+    private final int[] roots = new int[16];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        List<Integer> vertices = new ArrayList<>(vertexCount);
+        for (int i = 0; i < vertexCount; i++) {
+            vertices.add(i);
+        }
+        graph = new WeightedGraph<>(vertices);
+        Random random = new Random(42);
+        for (int u = 0; u < vertexCount; u++) {
+            // 用一个环保证图连通
+            graph.addEdge(u, (u + 1) % vertexCount, 1 + random.nextFloat() * 100);
+            for (int i = 0; i < degree; i++) {
+                graph.addEdge(u, random.nextInt(vertexCount), 1 + random.nextFloat() * 100);
+            }
+        }
+        csr = CsrGraph.of(graph);
+        for (int i = 0; i < roots.length; i++) {
+            roots[i] = random.nextInt(vertexCount);
+        }
+    }
+
+    @Benchmark
+    public WeightedGraph.DijkstraResult dijkstra() {
+        return graph.dijkstra(0);
+    }
+
+    @Benchmark
+    public ShortestPaths shortestPaths() {
+        return graph.shortestPaths(0);
+    }
+
+    @Benchmark
+    public ShortestPaths pointToPoint() {
+        return graph.shortestPath(0, vertexCount / 2);
+    }
+
+    @Benchmark
+    public List<WeightedEdge> mst() {
+        return graph.mst(0);
+    }
+
+    @Benchmark
+    public ShortestPaths csrDijkstra() {
+        return csr.dijkstra(0);
+    }
+
+    @Benchmark
+    public int[] csrMst() {
+        return csr.mst(0);
+    }
+
+    @Benchmark
+    public ShortestPaths[] shortestPathTrees() {
+        return graph.shortestPathTrees(roots);
+    }
+
+    @Benchmark
+    public ShortestPaths[] shortestPathsLoop() {
+        ShortestPaths[] trees = new ShortestPaths[roots.length];
+        for (int i = 0; i < roots.length; i++) {
+            trees[i] = graph.shortestPaths(roots[i]);
+        }
+        return trees;
+    }
+}
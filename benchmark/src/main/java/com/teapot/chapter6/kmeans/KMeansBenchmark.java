@@ -0,0 +1,48 @@
+package com.teapot.chapter6.kmeans;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * KMeans的基准测试：对随机数据点进行聚类（包含归一化和迭代）
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class KMeansBenchmark {
+    @Param({"1000", "10000", "100000"})
+    public int pointCount;
+
+    @Param({"4"})
+    public int dimensions;
+
+    @Param({"5"})
+    public int k;
+
+    private List<DataPoint> points;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        points = new ArrayList<>(pointCount);
+        for (int i = 0; i < pointCount; i++) {
+            List<Double> values = new ArrayList<>(dimensions);
+            for (int d = 0; d < dimensions; d++) {
+                values.add(random.nextGaussian() * 10 + (i % k) * 20);
+            }
+            points.add(new DataPoint(values));
+        }
+    }
+
+    @Benchmark
+    public List<KMeans<DataPoint>.Cluster> run() {
+        return new KMeans<>(k, points).run(100);
+    }
+}
@@ -0,0 +1,58 @@
+package com.teapot.chapter7.nn;
+
+import com.teapot.chapter7.utils.Util;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Network的基准测试：一轮训练（前向传播、反向传播和更新权重）
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NetworkBenchmark {
+    @Param({"150", "1500", "15000"})
+    public int sampleCount;
+
+    @Param({"4,6,3", "13,7,3", "64,32,10"})
+    public String layerStructure;
+
+    private Network<Integer> network;
+    private List<double[]> inputs;
+    private List<double[]> expecteds;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String[] parts = layerStructure.split(",");
+        int[] structure = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            structure[i] = Integer.parseInt(parts[i]);
+        }
+        network = new Network<>(structure, 0.3, Util::sigmoid, Util::derivativeSigmoid);
+
+        Random random = new Random(42);
+        int inputSize = structure[0];
+        int outputSize = structure[structure.length - 1];
+        inputs = new ArrayList<>(sampleCount);
+        expecteds = new ArrayList<>(sampleCount);
+        for (int i = 0; i < sampleCount; i++) {
+            inputs.add(random.doubles(inputSize).toArray());
+            double[] expected = new double[outputSize];
+            expected[random.nextInt(outputSize)] = 1.0;
+            expecteds.add(expected);
+        }
+    }
+
+    @Benchmark
+    public Network<Integer> train() {
+        network.train(inputs, expecteds);
+        return network;
+    }
+}
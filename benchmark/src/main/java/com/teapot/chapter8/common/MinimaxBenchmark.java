@@ -0,0 +1,53 @@
+package com.teapot.chapter8.common;
+
+import com.teapot.chapter8.c4.C4Board;
+import com.teapot.chapter8.ttt.TTTBoard;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Minimax.alphabeta的基准测试：从空棋盘开始分别对井字棋和四子棋进行不同深度的搜索
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MinimaxBenchmark {
+    @State(Scope.Benchmark)
+    public static class TicTacToeState {
+        @Param({"3", "6", "9"})
+        public int depth;
+
+        public TTTBoard board;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            board = new TTTBoard();
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class ConnectFourState {
+        @Param({"2", "3", "4", "5"})
+        public int depth;
+
+        public C4Board board;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            board = new C4Board();
+        }
+    }
+
+    @Benchmark
+    public double ticTacToe(TicTacToeState state) {
+        return Minimax.alphabeta(state.board, true, state.board.getTurn(), state.depth);
+    }
+
+    @Benchmark
+    public double connectFour(ConnectFourState state) {
+        return Minimax.alphabeta(state.board, true, state.board.getTurn(), state.depth);
+    }
+}
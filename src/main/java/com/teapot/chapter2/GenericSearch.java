@@ -3,9 +3,18 @@ package com.teapot.chapter2;
 import com.teapot.chapter2.maze.Maze;
 
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.ToDoubleBiFunction;
 import java.util.function.ToDoubleFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * P25~26
@@ -139,6 +148,74 @@ public class GenericSearch {
         return null;
     }
 
+    /**
+     * 按层同步的并行广度优先搜索
+     * 每一层的状态在pool中并行扩展，已访问集合是并发集合；下一层中的每个状态只保留优先级最小的父节点，
+     * 优先级为（父节点在本层中的序号，子节点在后继列表中的序号），再按优先级排序得到下一层，
+     * 因此下一层的顺序以及返回的路径都与bfs完全相同
+     *
+     * @param pool 执行并行扩展的线程池
+     */
+    public static <T> Node<T> parallelBfs(T initial, Predicate<T> goalTest, Function<T, List<T>> successors,
+                                          ForkJoinPool pool) {
+        List<Node<T>> frontier = List.of(new Node<>(initial, null));
+        // 记录已经搜索过的状态
+        Set<T> explored = ConcurrentHashMap.newKeySet();
+        explored.add(initial);
+
+        while (!frontier.isEmpty()) {
+            List<Node<T>> level = frontier;
+            // 本层中第一个满足条件的状态，与bfs按顺序出队时遇到的第一个目标相同
+            OptionalInt goal = submit(pool, () -> IntStream.range(0, level.size()).parallel()
+                    .filter(i -> goalTest.test(level.get(i).state))
+                    .findFirst());
+            if (goal.isPresent()) {
+                return level.get(goal.getAsInt());
+            }
+
+            ConcurrentHashMap<T, Long> discovered = new ConcurrentHashMap<>();
+            submit(pool, () -> {
+                IntStream.range(0, level.size()).parallel().forEach(i -> {
+                    List<T> children = successors.apply(level.get(i).state);
+                    for (int j = 0; j < children.size(); j++) {
+                        T child = children.get(j);
+                        if (!explored.contains(child)) {
+                            discovered.merge(child, ((long) i << 32) | j, Math::min);
+                        }
+                    }
+                });
+                return null;
+            });
+            explored.addAll(discovered.keySet());
+            frontier = submit(pool, () -> discovered.entrySet().parallelStream()
+                    .sorted(Map.Entry.comparingByValue())
+                    .map(entry -> new Node<>(entry.getKey(), level.get((int) (entry.getValue() >>> 32))))
+                    .collect(Collectors.toList()));
+        }
+        return null;
+    }
+
+    public static <T> Node<T> parallelBfs(T initial, Predicate<T> goalTest, Function<T, List<T>> successors) {
+        return parallelBfs(initial, goalTest, successors, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 在指定的线程池中执行并行流
+     */
+    private static <R> R submit(ForkJoinPool pool, Callable<R> task) {
+        try {
+            return pool.submit(task).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
     /**
      * P41
      * A*搜索：使用成本函数g(n)和启发函数h(n)，将搜索聚焦在最有可能快速抵达目标的路径上
@@ -176,17 +253,329 @@ public class GenericSearch {
         return null;
     }
 
-    public static <T> List<T> nodeToPath(Node<T> node) {
+    /**
+     * 使用索引d叉堆的A*搜索
+     * 1. 每个状态在堆中最多只有一项，找到更短的路径时执行decreaseKey，而不是插入新的Node
+     * 2. 已扩展的状态放入closed集合，不会被重复扩展
+     * 3. 每一步的成本由edgeCost给出，不再固定为1
+     * 要求启发函数是一致的（h(n) <= cost(n, m) + h(m)），例如迷宫中的曼哈顿距离
+     *
+     * @param edgeCost 从一个状态移动到其后继状态的成本，必须非负
+     */
+    public static <T> Node<T> astar(T initial, Predicate<T> goalTest, Function<T, List<T>> successors,
+                                    ToDoubleFunction<T> heuristic, ToDoubleBiFunction<T, T> edgeCost) {
+        // 状态 -> 编号，编号同时作为nodes和堆中的索引
+        Map<T, Integer> ids = new HashMap<>();
+        List<Node<T>> nodes = new ArrayList<>();
+        BitSet closed = new BitSet();
+        IndexedDaryHeap frontier = new IndexedDaryHeap(4);
+
+        Node<T> start = new Node<>(initial, null, 0.0, heuristic.applyAsDouble(initial));
+        ids.put(initial, 0);
+        nodes.add(start);
+        frontier.insert(0, start.cost + start.heuristic);
+
+        while (!frontier.isEmpty()) {
+            int currentId = frontier.poll();
+            Node<T> currentNode = nodes.get(currentId);
+            closed.set(currentId);
+            if (goalTest.test(currentNode.state)) {
+                return currentNode;
+            }
+
+            for (T child : successors.apply(currentNode.state)) {
+                double newCost = currentNode.cost + edgeCost.applyAsDouble(currentNode.state, child);
+                Integer childId = ids.get(child);
+                if (childId == null) {
+                    childId = nodes.size();
+                    ids.put(child, childId);
+                    Node<T> childNode = new Node<>(child, currentNode, newCost, heuristic.applyAsDouble(child));
+                    nodes.add(childNode);
+                    frontier.insert(childId, newCost + childNode.heuristic);
+                    continue;
+                }
+                // 已经扩展过的状态
+                if (closed.get(childId)) {
+                    continue;
+                }
+                Node<T> childNode = nodes.get(childId);
+                if (newCost < childNode.cost) {
+                    childNode.cost = newCost;
+                    childNode.parent = currentNode;
+                    frontier.decreaseKey(childId, newCost + childNode.heuristic);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 迭代加深A*搜索（IDA*）：以f(n) = g(n) + h(n)为阈值进行深度优先搜索，
+     * 超过阈值的分支被剪掉，并以被剪掉分支中最小的f(n)作为下一轮的阈值
+     * 只保存当前路径（以及路径上每个状态的后继迭代器），内存占用为O(depth)，以重复计算换取内存
+     * 每一步的成本为1，与astar保持一致
+     *
+     * @param cacheSize 置换表的最大容量，记录本轮中到达每个状态的最小g(n)，用于剪掉重复到达的状态；
+     *                  按LRU淘汰，为0时不使用置换表
+     */
+    public static <T> Node<T> idaStar(T initial, Predicate<T> goalTest, Function<T, List<T>> successors,
+                                      ToDoubleFunction<T> heuristic, int cacheSize) {
+        if (goalTest.test(initial)) {
+            return new Node<>(initial, null, 0.0, heuristic.applyAsDouble(initial));
+        }
+        // 当前路径以及路径上每个状态尚未遍历的后继
         List<T> path = new ArrayList<>();
-        path.add(node.state);
-        // 得到从起点到目标点的路径
-        while (node.parent != null) {
-            node = node.parent;
-            path.add(0, node.state);
+        List<Iterator<T>> pending = new ArrayList<>();
+        Set<T> onPath = new HashSet<>();
+        Map<T, Double> cache = cacheSize > 0 ? new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<T, Double> eldest) {
+                return size() > cacheSize;
+            }
+        } : null;
+
+        double threshold = heuristic.applyAsDouble(initial);
+        while (true) {
+            double nextThreshold = Double.POSITIVE_INFINITY;
+            path.add(initial);
+            onPath.add(initial);
+            pending.add(successors.apply(initial).iterator());
+            if (cache != null) {
+                cache.clear();
+            }
+
+            while (!pending.isEmpty()) {
+                int top = pending.size() - 1;
+                Iterator<T> children = pending.get(top);
+                // 当前状态的后继都已经搜索过，回溯
+                if (!children.hasNext()) {
+                    pending.remove(top);
+                    onPath.remove(path.remove(top));
+                    continue;
+                }
+                T child = children.next();
+                // 防止在当前路径上绕圈
+                if (onPath.contains(child)) {
+                    continue;
+                }
+                double cost = path.size();
+                double f = cost + heuristic.applyAsDouble(child);
+                if (f > threshold) {
+                    nextThreshold = Math.min(nextThreshold, f);
+                    continue;
+                }
+                if (cache != null) {
+                    Double seen = cache.get(child);
+                    if (seen != null && seen <= cost) {
+                        continue;
+                    }
+                    cache.put(child, cost);
+                }
+                path.add(child);
+                if (goalTest.test(child)) {
+                    return pathToNode(path, heuristic);
+                }
+                onPath.add(child);
+                pending.add(successors.apply(child).iterator());
+            }
+
+            // 没有被剪掉的分支，说明不存在解
+            if (nextThreshold == Double.POSITIVE_INFINITY) {
+                return null;
+            }
+            threshold = nextThreshold;
         }
+    }
+
+    public static <T> Node<T> idaStar(T initial, Predicate<T> goalTest, Function<T, List<T>> successors,
+                                      ToDoubleFunction<T> heuristic) {
+        return idaStar(initial, goalTest, successors, heuristic, 0);
+    }
+
+    private static <T> Node<T> pathToNode(List<T> path, ToDoubleFunction<T> heuristic) {
+        Node<T> node = null;
+        for (int i = 0; i < path.size(); i++) {
+            T state = path.get(i);
+            node = new Node<>(state, node, i, heuristic.applyAsDouble(state));
+        }
+        return node;
+    }
+
+    /**
+     * 双向广度优先搜索的相遇点
+     */
+    private static final class Meeting<T> {
+        // 正向搜索到达相遇状态的节点
+        final Node<T> forward;
+        // 反向搜索到达相遇状态的节点，其parent指向目标方向
+        final Node<T> backward;
+
+        Meeting(Node<T> forward, Node<T> backward) {
+            this.forward = forward;
+            this.backward = backward;
+        }
+
+        double length() {
+            return forward.cost + backward.cost;
+        }
+    }
+
+    /**
+     * 双向广度优先搜索：目标状态已知时，分别从起点（沿successors）和终点（沿predecessors）按层扩展，
+     * 每次扩展较小的那一侧，两侧相遇时停止，扩展的状态数约为b^(d/2)而不是b^d
+     *
+     * @param goal         目标状态
+     * @param predecessors 前驱函数，对无向图（如迷宫、UnweightedGraph）与successors相同
+     * @return 以goal为终点的节点，可以直接使用nodeToPath得到完整路径
+     */
+    public static <T> Node<T> bidirectionalBfs(T initial, T goal, Function<T, List<T>> successors,
+                                               Function<T, List<T>> predecessors) {
+        if (initial.equals(goal)) {
+            return new Node<>(initial, null);
+        }
+        // 两个方向各自记录已经搜索过的状态，cost为到起点（终点）的步数
+        Map<T, Node<T>> forwardExplored = new HashMap<>();
+        Map<T, Node<T>> backwardExplored = new HashMap<>();
+        List<Node<T>> forwardFrontier = new ArrayList<>();
+        List<Node<T>> backwardFrontier = new ArrayList<>();
+        Node<T> start = new Node<>(initial, null, 0.0, 0.0);
+        Node<T> end = new Node<>(goal, null, 0.0, 0.0);
+        forwardExplored.put(initial, start);
+        backwardExplored.put(goal, end);
+        forwardFrontier.add(start);
+        backwardFrontier.add(end);
+
+        while (!forwardFrontier.isEmpty() && !backwardFrontier.isEmpty()) {
+            List<Node<T>> next = new ArrayList<>();
+            Meeting<T> meeting = null;
+            boolean expandForward = forwardFrontier.size() <= backwardFrontier.size();
+            List<Node<T>> level = expandForward ? forwardFrontier : backwardFrontier;
+            Function<T, List<T>> expand = expandForward ? successors : predecessors;
+            Map<T, Node<T>> explored = expandForward ? forwardExplored : backwardExplored;
+            Map<T, Node<T>> opposite = expandForward ? backwardExplored : forwardExplored;
+
+            // 扩展完整的一层，并在这一层的所有相遇点中选择最短的路径
+            for (Node<T> currentNode : level) {
+                for (T child : expand.apply(currentNode.state)) {
+                    if (explored.containsKey(child)) {
+                        continue;
+                    }
+                    Node<T> childNode = new Node<>(child, currentNode, currentNode.cost + 1, 0.0);
+                    explored.put(child, childNode);
+                    next.add(childNode);
+                    Node<T> other = opposite.get(child);
+                    if (other != null) {
+                        Meeting<T> candidate = expandForward ? new Meeting<>(childNode, other)
+                                : new Meeting<>(other, childNode);
+                        if (meeting == null || candidate.length() < meeting.length()) {
+                            meeting = candidate;
+                        }
+                    }
+                }
+            }
+            if (meeting != null) {
+                return join(meeting);
+            }
+            if (expandForward) {
+                forwardFrontier = next;
+            } else {
+                backwardFrontier = next;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 将反向搜索的节点链依次接到正向节点链之后
+     */
+    private static <T> Node<T> join(Meeting<T> meeting) {
+        Node<T> current = meeting.forward;
+        for (Node<T> node = meeting.backward.parent; node != null; node = node.parent) {
+            current = new Node<>(node.state, current, current.cost + 1, 0.0);
+        }
+        return current;
+    }
+
+    public static <T> List<T> nodeToPath(Node<T> node) {
+        List<T> path = new ArrayList<>(pathLength(node));
+        // 从目标点沿着parent回到起点，再整体反转，避免每次在头部插入的O(n^2)开销
+        for (T state : reversePath(node)) {
+            path.add(state);
+        }
+        Collections.reverse(path);
         return path;
     }
 
+    /**
+     * 将从起点到目标点的路径写入调用方提供的缓冲区，从下标length - 1开始倒序填充，时间复杂度O(n)
+     *
+     * @param buffer 长度至少为pathLength(node)，可以在多次调用之间复用
+     * @return 路径的长度（包含起点和目标点）
+     */
+    public static <T> int nodeToPath(Node<T> node, T[] buffer) {
+        int length = pathLength(node);
+        if (buffer.length < length) {
+            throw new IllegalArgumentException("Buffer too small: " + buffer.length + " < " + length);
+        }
+        int i = length - 1;
+        for (Node<T> current = node; current != null; current = current.parent) {
+            buffer[i--] = current.state;
+        }
+        return length;
+    }
+
+    /**
+     * 路径包含的状态数量（包含起点和目标点），不创建任何集合
+     */
+    public static <T> int pathLength(Node<T> node) {
+        int length = 0;
+        for (Node<T> current = node; current != null; current = current.parent) {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * 从起点出发的第一步，路径只有起点时返回起点
+     */
+    public static <T> T firstMove(Node<T> node) {
+        while (node.parent != null && node.parent.parent != null) {
+            node = node.parent;
+        }
+        return node.state;
+    }
+
+    /**
+     * 沿着parent链从目标点到起点的惰性视图，遍历时才读取节点，不复制路径
+     */
+    public static <T> Iterable<T> reversePath(Node<T> node) {
+        return () -> new Iterator<T>() {
+            private Node<T> current = node;
+
+            @Override
+            public boolean hasNext() {
+                return current != null;
+            }
+
+            @Override
+            public T next() {
+                if (current == null) {
+                    throw new NoSuchElementException();
+                }
+                T state = current.state;
+                current = current.parent;
+                return state;
+            }
+        };
+    }
+
+    /**
+     * reversePath的Stream形式，例如reversePathStream(node).count()
+     */
+    public static <T> Stream<T> reversePathStream(Node<T> node) {
+        return StreamSupport.stream(reversePath(node).spliterator(), false);
+    }
+
     public static void main(String[] args) {
         System.out.println(linearContains(List.of(1, 5, 15, 15, 15, 15, 20), 5)); // true
         System.out.println(binaryContains(List.of("a", "d", "e", "f", "z"), "f")); // true
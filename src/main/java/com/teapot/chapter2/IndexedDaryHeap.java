@@ -0,0 +1,176 @@
+package com.teapot.chapter2;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * 索引d叉最小堆
+ * 元素是非负的int编号，每个编号在堆中最多出现一次，并记录它在堆中的位置，
+ * 因此可以在O(log_d n)时间内完成decreaseKey，而不必像PriorityQueue那样重复插入同一个状态
+ */
+public class IndexedDaryHeap {
+    private final int arity;
+    // 堆数组：位置 -> 编号
+    private int[] heap;
+    // 编号 -> 在堆数组中的位置，不在堆中为-1
+    private int[] positions;
+    // 编号 -> 优先级
+    private double[] keys;
+    private int size;
+
+    public IndexedDaryHeap(int arity, int capacity) {
+        if (arity < 2) {
+            throw new IllegalArgumentException("Arity should be at least 2");
+        }
+        this.arity = arity;
+        capacity = Math.max(capacity, 16);
+        heap = new int[capacity];
+        positions = new int[capacity];
+        Arrays.fill(positions, -1);
+        keys = new double[capacity];
+    }
+
+    public IndexedDaryHeap(int arity) {
+        this(arity, 16);
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(int item) {
+        return item < positions.length && positions[item] >= 0;
+    }
+
+    public double keyOf(int item) {
+        return keys[item];
+    }
+
+    public void insert(int item, double key) {
+        if (item < 0) {
+            throw new IllegalArgumentException("Item must be non-negative: " + item);
+        }
+        if (contains(item)) {
+            throw new IllegalArgumentException("Item already in heap: " + item);
+        }
+        ensureItemCapacity(item);
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        keys[item] = key;
+        heap[size] = item;
+        positions[item] = size;
+        siftUp(size++);
+    }
+
+    /**
+     * 降低item的优先级，新的优先级不小于当前值时不做任何操作
+     */
+    public void decreaseKey(int item, double key) {
+        if (!contains(item)) {
+            throw new IllegalArgumentException("Item not in heap: " + item);
+        }
+        if (key >= keys[item]) {
+            return;
+        }
+        keys[item] = key;
+        siftUp(positions[item]);
+    }
+
+    /**
+     * 不在堆中则插入，否则执行decreaseKey
+     */
+    public void insertOrDecrease(int item, double key) {
+        if (contains(item)) {
+            decreaseKey(item, key);
+        } else {
+            insert(item, key);
+        }
+    }
+
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return heap[0];
+    }
+
+    /**
+     * 弹出优先级最小的编号
+     */
+    public int poll() {
+        int top = peek();
+        positions[top] = -1;
+        size--;
+        if (size > 0) {
+            heap[0] = heap[size];
+            positions[heap[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            positions[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    private void ensureItemCapacity(int item) {
+        if (item >= positions.length) {
+            int capacity = Math.max(item + 1, positions.length * 2);
+            int oldLength = positions.length;
+            positions = Arrays.copyOf(positions, capacity);
+            Arrays.fill(positions, oldLength, capacity, -1);
+            keys = Arrays.copyOf(keys, capacity);
+        }
+    }
+
+    private void siftUp(int position) {
+        int item = heap[position];
+        double key = keys[item];
+        while (position > 0) {
+            int parent = (position - 1) / arity;
+            if (keys[heap[parent]] <= key) {
+                break;
+            }
+            heap[position] = heap[parent];
+            positions[heap[position]] = position;
+            position = parent;
+        }
+        heap[position] = item;
+        positions[item] = position;
+    }
+
+    private void siftDown(int position) {
+        int item = heap[position];
+        double key = keys[item];
+        while (true) {
+            int first = position * arity + 1;
+            if (first >= size) {
+                break;
+            }
+            // 找到优先级最小的子节点
+            int best = first;
+            int last = Math.min(first + arity, size);
+            for (int child = first + 1; child < last; child++) {
+                if (keys[heap[child]] < keys[heap[best]]) {
+                    best = child;
+                }
+            }
+            if (key <= keys[heap[best]]) {
+                break;
+            }
+            heap[position] = heap[best];
+            positions[heap[position]] = position;
+            position = best;
+        }
+        heap[position] = item;
+        positions[item] = position;
+    }
+}
@@ -0,0 +1,414 @@
+package com.teapot.chapter2;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+import java.util.function.IntToDoubleFunction;
+
+/**
+ * 基于整数状态的通用搜索
+ * 状态编码为非负的int（例如迷宫中的 row * columns + column），后继状态由IntSuccessors写入一个复用的int缓冲区，
+ * 已访问集合和父节点关系保存在开放寻址哈希表IntStateTable中，搜索过程中不为每个状态分配Node对象，也不进行装箱
+ */
+public class IntGenericSearch {
+    /**
+     * 没有父节点（起始状态）
+     */
+    public static final int NO_PARENT = -1;
+
+    @FunctionalInterface
+    public interface IntSuccessors {
+        /**
+         * 将state的所有后继状态写入buffer
+         *
+         * @param state  当前状态
+         * @param buffer 复用的缓冲区，长度为搜索时指定的最大分支数
+         * @return 写入的后继状态个数
+         */
+        int successors(int state, int[] buffer);
+    }
+
+    /**
+     * 开放寻址（线性探测）哈希表，记录状态 -> 父状态以及到达该状态的成本
+     * 同时充当已访问集合，代替Set<T>、Map<T, Double>和Node链
+     */
+    public static final class IntStateTable {
+        private static final int EMPTY = -1;
+        private int[] keys;
+        private int[] parents;
+        private double[] costs;
+        private int size;
+        private int mask;
+
+        public IntStateTable(int expectedStates) {
+            int capacity = Integer.highestOneBit(Math.max(16, expectedStates) * 2 - 1) << 1;
+            allocate(capacity);
+        }
+
+        private void allocate(int capacity) {
+            keys = new int[capacity];
+            Arrays.fill(keys, EMPTY);
+            parents = new int[capacity];
+            costs = new double[capacity];
+            mask = capacity - 1;
+        }
+
+        private static int hash(int state) {
+            int h = state * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+
+        /**
+         * 查找state所在的槽位，不存在时返回应插入的空槽位
+         */
+        private int slot(int state) {
+            int index = hash(state) & mask;
+            while (keys[index] != EMPTY && keys[index] != state) {
+                index = (index + 1) & mask;
+            }
+            return index;
+        }
+
+        public boolean contains(int state) {
+            return keys[slot(state)] == state;
+        }
+
+        /**
+         * 仅当state尚未访问时记录它
+         *
+         * @return 是否为新访问的状态
+         */
+        public boolean add(int state, int parent, double cost) {
+            if (state < 0) {
+                throw new IllegalArgumentException("State must be a non-negative int: " + state);
+            }
+            int index = slot(state);
+            if (keys[index] == state) {
+                return false;
+            }
+            insert(index, state, parent, cost);
+            return true;
+        }
+
+        /**
+         * 记录或覆盖state的父状态和成本
+         */
+        public void put(int state, int parent, double cost) {
+            if (state < 0) {
+                throw new IllegalArgumentException("State must be a non-negative int: " + state);
+            }
+            int index = slot(state);
+            if (keys[index] == state) {
+                parents[index] = parent;
+                costs[index] = cost;
+            } else {
+                insert(index, state, parent, cost);
+            }
+        }
+
+        private void insert(int index, int state, int parent, double cost) {
+            keys[index] = state;
+            parents[index] = parent;
+            costs[index] = cost;
+            // 负载因子超过0.5时扩容
+            if (++size * 2 > keys.length) {
+                rehash();
+            }
+        }
+
+        private void rehash() {
+            int[] oldKeys = keys;
+            int[] oldParents = parents;
+            double[] oldCosts = costs;
+            allocate(oldKeys.length * 2);
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != EMPTY) {
+                    int index = slot(oldKeys[i]);
+                    keys[index] = oldKeys[i];
+                    parents[index] = oldParents[i];
+                    costs[index] = oldCosts[i];
+                }
+            }
+        }
+
+        /**
+         * @return state的父状态，起始状态返回NO_PARENT
+         */
+        public int parentOf(int state) {
+            int index = slot(state);
+            if (keys[index] != state) {
+                throw new IllegalArgumentException("State not visited: " + state);
+            }
+            return parents[index];
+        }
+
+        /**
+         * @return 到达state的成本，未访问过的状态返回正无穷
+         */
+        public double costOf(int state) {
+            int index = slot(state);
+            return keys[index] == state ? costs[index] : Double.POSITIVE_INFINITY;
+        }
+
+        public int size() {
+            return size;
+        }
+    }
+
+    /**
+     * 搜索结果：目标状态以及搜索过程中记录的父节点关系
+     */
+    public static final class IntSolution {
+        public final int goal;
+        private final IntStateTable visited;
+
+        IntSolution(int goal, IntStateTable visited) {
+            this.goal = goal;
+            this.visited = visited;
+        }
+
+        public double cost() {
+            return visited.costOf(goal);
+        }
+
+        /**
+         * 本次搜索访问过的状态数量
+         */
+        public int visitedCount() {
+            return visited.size();
+        }
+
+        /**
+         * 得到从起点到目标点的路径，先数出路径长度再从尾部倒序填充，时间复杂度O(n)
+         */
+        public int[] path() {
+            int length = 0;
+            for (int state = goal; state != NO_PARENT; state = visited.parentOf(state)) {
+                length++;
+            }
+            int[] path = new int[length];
+            for (int state = goal, i = length - 1; state != NO_PARENT; state = visited.parentOf(state), i--) {
+                path[i] = state;
+            }
+            return path;
+        }
+    }
+
+    /**
+     * 可增长的int环形队列，既可以作为队列（BFS）也可以作为栈（DFS）
+     */
+    static final class IntDeque {
+        private int[] elements = new int[64];
+        private int head;
+        private int size;
+
+        void addLast(int value) {
+            if (size == elements.length) {
+                int[] grown = new int[elements.length * 2];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = elements[(head + i) & (elements.length - 1)];
+                }
+                elements = grown;
+                head = 0;
+            }
+            elements[(head + size) & (elements.length - 1)] = value;
+            size++;
+        }
+
+        int pollFirst() {
+            int value = elements[head];
+            head = (head + 1) & (elements.length - 1);
+            size--;
+            return value;
+        }
+
+        int pollLast() {
+            size--;
+            return elements[(head + size) & (elements.length - 1)];
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    /**
+     * A*使用的二叉最小堆，以并行数组保存f(n)、g(n)和状态
+     * 同一状态可以被多次放入，由调用方在弹出时根据g(n)跳过过期的元素
+     */
+    public static final class IntMinHeap {
+        private double[] priorities = new double[64];
+        private double[] costs = new double[64];
+        private int[] states = new int[64];
+        private int size;
+
+        public void offer(int state, double cost, double priority) {
+            if (size == states.length) {
+                priorities = Arrays.copyOf(priorities, size * 2);
+                costs = Arrays.copyOf(costs, size * 2);
+                states = Arrays.copyOf(states, size * 2);
+            }
+            int i = size++;
+            // 上浮
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (priorities[parent] <= priority) {
+                    break;
+                }
+                move(parent, i);
+                i = parent;
+            }
+            priorities[i] = priority;
+            costs[i] = cost;
+            states[i] = state;
+        }
+
+        /**
+         * 移除堆顶，堆顶的值需要在调用前通过topState()/topCost()读取
+         */
+        public void poll() {
+            size--;
+            if (size == 0) {
+                return;
+            }
+            double priority = priorities[size];
+            double cost = costs[size];
+            int state = states[size];
+            int i = 0;
+            // 下沉
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && priorities[child + 1] < priorities[child]) {
+                    child++;
+                }
+                if (priority <= priorities[child]) {
+                    break;
+                }
+                move(child, i);
+                i = child;
+            }
+            priorities[i] = priority;
+            costs[i] = cost;
+            states[i] = state;
+        }
+
+        private void move(int from, int to) {
+            priorities[to] = priorities[from];
+            costs[to] = costs[from];
+            states[to] = states[from];
+        }
+
+        public int topState() {
+            return states[0];
+        }
+
+        public double topCost() {
+            return costs[0];
+        }
+
+        public boolean isEmpty() {
+            return size == 0;
+        }
+    }
+
+    /**
+     * 深度优先搜索
+     *
+     * @param initial       起始状态
+     * @param goalTest      到达终点的谓词条件
+     * @param successors    后继状态生成函数
+     * @param maxSuccessors 单个状态的最大后继数量，用于分配复用缓冲区
+     * @return 找不到解时返回null
+     */
+    public static IntSolution dfs(int initial, IntPredicate goalTest, IntSuccessors successors, int maxSuccessors) {
+        IntDeque frontier = new IntDeque();
+        frontier.addLast(initial);
+        IntStateTable explored = new IntStateTable(1024);
+        explored.add(initial, NO_PARENT, 0.0);
+        int[] buffer = new int[maxSuccessors];
+
+        while (!frontier.isEmpty()) {
+            int currentState = frontier.pollLast();
+            if (goalTest.test(currentState)) {
+                return new IntSolution(currentState, explored);
+            }
+            double childCost = explored.costOf(currentState) + 1;
+            int count = successors.successors(currentState, buffer);
+            for (int i = 0; i < count; i++) {
+                // add返回false说明之前已经访问过
+                if (explored.add(buffer[i], currentState, childCost)) {
+                    frontier.addLast(buffer[i]);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 广度优先搜索
+     */
+    public static IntSolution bfs(int initial, IntPredicate goalTest, IntSuccessors successors, int maxSuccessors) {
+        IntDeque frontier = new IntDeque();
+        frontier.addLast(initial);
+        IntStateTable explored = new IntStateTable(1024);
+        explored.add(initial, NO_PARENT, 0.0);
+        int[] buffer = new int[maxSuccessors];
+
+        while (!frontier.isEmpty()) {
+            int currentState = frontier.pollFirst();
+            if (goalTest.test(currentState)) {
+                return new IntSolution(currentState, explored);
+            }
+            double childCost = explored.costOf(currentState) + 1;
+            int count = successors.successors(currentState, buffer);
+            for (int i = 0; i < count; i++) {
+                if (explored.add(buffer[i], currentState, childCost)) {
+                    frontier.addLast(buffer[i]);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A*搜索，每一步的成本为1，与GenericSearch.astar保持一致
+     * 已经找到更短路径的旧堆元素在弹出时直接跳过
+     */
+    public static IntSolution astar(int initial, IntPredicate goalTest, IntSuccessors successors, int maxSuccessors,
+                                    IntToDoubleFunction heuristic) {
+        IntMinHeap frontier = new IntMinHeap();
+        frontier.offer(initial, 0.0, heuristic.applyAsDouble(initial));
+        IntStateTable explored = new IntStateTable(1024);
+        explored.put(initial, NO_PARENT, 0.0);
+        int[] buffer = new int[maxSuccessors];
+
+        while (!frontier.isEmpty()) {
+            int currentState = frontier.topState();
+            double currentCost = frontier.topCost();
+            frontier.poll();
+            if (currentCost > explored.costOf(currentState)) {
+                continue;
+            }
+            if (goalTest.test(currentState)) {
+                return new IntSolution(currentState, explored);
+            }
+
+            int count = successors.successors(currentState, buffer);
+            for (int i = 0; i < count; i++) {
+                int child = buffer[i];
+                double newCost = currentCost + 1;
+                if (explored.costOf(child) > newCost) {
+                    explored.put(child, currentState, newCost);
+                    frontier.offer(child, newCost, newCost + heuristic.applyAsDouble(child));
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,195 @@
+package com.teapot.chapter2.maze;
+
+import com.teapot.chapter2.IntGenericSearch;
+import com.teapot.chapter2.IntGenericSearch.IntSolution;
+
+import java.util.SplittableRandom;
+
+/**
+ * 紧凑的迷宫表示
+ * 每个格子占2位，打包存放在long[]中（每个long存放32个格子），位置编码为 row * columns + column 的int，
+ * 20000 x 20000 的迷宫只需要约100MB，而Cell[][]需要约1.6GB的引用
+ * 后继函数直接写入调用方提供的缓冲区，可以配合IntGenericSearch使用，搜索过程中不分配MazeLocation
+ */
+public class CompactMaze implements MazeGrid {
+    public static final int EMPTY = 0;
+    public static final int BLOCKED = 1;
+    public static final int PATH = 2;
+
+    private static final int BITS_PER_CELL = 2;
+    private static final int CELLS_PER_WORD = Long.SIZE / BITS_PER_CELL;
+    private static final long CELL_MASK = (1L << BITS_PER_CELL) - 1;
+
+    private final int rows, columns;
+    private final int start, goal;
+    private final long[] cells;
+
+    /**
+     * 随机生成迷宫
+     *
+     * @param start      起点编号
+     * @param goal       终点编号
+     * @param sparseness 稀疏度
+     * @param seed       随机种子，相同的种子生成相同的迷宫
+     */
+    public CompactMaze(int rows, int columns, int start, int goal, double sparseness, long seed) {
+        if ((long) rows * columns > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Maze too large for int locations: " + rows + " x " + columns);
+        }
+        if (rows <= 0 || columns <= 0) {
+            throw new IllegalArgumentException("Invalid maze size: " + rows + " x " + columns);
+        }
+        if (start < 0 || start >= rows * columns || goal < 0 || goal >= rows * columns) {
+            throw new IllegalArgumentException("Start or goal outside the maze: " + start + ", " + goal);
+        }
+        this.rows = rows;
+        this.columns = columns;
+        this.start = start;
+        this.goal = goal;
+        int cellCount = rows * columns;
+        cells = new long[(cellCount + CELLS_PER_WORD - 1) / CELLS_PER_WORD];
+
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int id = 0; id < cellCount; id++) {
+            if (random.nextDouble() < sparseness) {
+                set(id, BLOCKED);
+            }
+        }
+        set(start, EMPTY);
+        set(goal, EMPTY);
+    }
+
+    public CompactMaze(int rows, int columns, double sparseness, long seed) {
+        this(rows, columns, 0, rows * columns - 1, sparseness, seed);
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getGoal() {
+        return goal;
+    }
+
+    public int toId(int row, int column) {
+        return row * columns + column;
+    }
+
+    public int get(int id) {
+        int shift = (id % CELLS_PER_WORD) * BITS_PER_CELL;
+        return (int) ((cells[id / CELLS_PER_WORD] >>> shift) & CELL_MASK);
+    }
+
+    public void set(int id, int cell) {
+        int word = id / CELLS_PER_WORD;
+        int shift = (id % CELLS_PER_WORD) * BITS_PER_CELL;
+        cells[word] = (cells[word] & ~(CELL_MASK << shift)) | ((long) cell << shift);
+    }
+
+    @Override
+    public boolean isBlocked(int row, int column) {
+        return get(toId(row, column)) == BLOCKED;
+    }
+
+    public boolean goalTest(int id) {
+        return id == goal;
+    }
+
+    /**
+     * 检查当前位置的上下左右是否存在可以行进的路径，顺序与Maze.successors相同
+     *
+     * @param buffer 长度至少为4
+     * @return 后继位置的个数
+     */
+    @Override
+    public int successors(int id, int[] buffer) {
+        int row = id / columns;
+        int column = id - row * columns;
+        int count = 0;
+        if (row + 1 < rows && get(id + columns) != BLOCKED) {
+            buffer[count++] = id + columns;
+        }
+        if (row - 1 >= 0 && get(id - columns) != BLOCKED) {
+            buffer[count++] = id - columns;
+        }
+        if (column + 1 < columns && get(id + 1) != BLOCKED) {
+            buffer[count++] = id + 1;
+        }
+        if (column - 1 >= 0 && get(id - 1) != BLOCKED) {
+            buffer[count++] = id - 1;
+        }
+        return count;
+    }
+
+    /**
+     * 到终点的曼哈顿距离
+     */
+    public double manhattanDistance(int id) {
+        int row = id / columns;
+        int column = id - row * columns;
+        return Math.abs(row - goal / columns) + Math.abs(column - goal % columns);
+    }
+
+    /**
+     * 标记迷宫中的成功路径
+     */
+    public void mark(int[] path) {
+        for (int id : path) {
+            set(id, PATH);
+        }
+    }
+
+    /**
+     * 移除已标记的路径
+     */
+    public void clear(int[] path) {
+        for (int id : path) {
+            set(id, EMPTY);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                int id = toId(row, column);
+                if (id == start) {
+                    sb.append(Maze.Cell.START);
+                } else if (id == goal) {
+                    sb.append(Maze.Cell.GOAL);
+                } else {
+                    int cell = get(id);
+                    sb.append(cell == BLOCKED ? Maze.Cell.BLOCKED : cell == PATH ? Maze.Cell.PATH : Maze.Cell.EMPTY);
+                }
+            }
+            sb.append(System.lineSeparator());
+        }
+        return sb.toString();
+    }
+
+    public static void main(String[] args) {
+        CompactMaze m = new CompactMaze(10, 10, 0.2, System.nanoTime());
+        System.out.println(m);
+
+        IntSolution solution = IntGenericSearch.astar(m.getStart(), m::goalTest, m::successors, 4, m::manhattanDistance);
+        if (solution == null) {
+            System.out.println("No solution found using A* search!");
+        } else {
+            int[] path = solution.path();
+            m.mark(path);
+            System.out.println(m);
+            m.clear(path);
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package com.teapot.chapter2.maze;
+
+import com.teapot.chapter2.IntGenericSearch;
+import com.teapot.chapter2.IntGenericSearch.IntMinHeap;
+import com.teapot.chapter2.IntGenericSearch.IntStateTable;
+import com.teapot.chapter2.maze.Maze.MazeLocation;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 跳点搜索（Jump Point Search, JPS）
+ * 在所有移动成本相同的网格上，许多路径是对称的（先右后下与先下后右长度相同），A*会把它们全部扩展一遍
+ * JPS沿着当前方向一直“跳跃”，只在遇到目标或强制邻居（被障碍挡住、只能经由当前格子到达的邻居）时才停下，
+ * 只把这些跳点加入开放列表，返回的路径仍然是最短路径
+ * 1. 四连通：只能上下左右移动，每步成本为1；垂直跳跃时需要检查水平方向是否存在跳点
+ * 2. 八连通：允许对角线移动（两侧的直线格子都可通行时才允许，不能穿墙角），成本为√2；
+ *    对角线跳跃时需要检查两个直线方向是否存在跳点
+ */
+public class JumpPointSearch {
+    private static final double SQRT2 = Math.sqrt(2);
+
+    private final MazeGrid grid;
+    private final int rows, columns;
+    private final boolean diagonal;
+
+    /**
+     * @param diagonal true为八连通，false为四连通（与Maze.successors相同）
+     */
+    public JumpPointSearch(MazeGrid grid, boolean diagonal) {
+        this.grid = grid;
+        this.rows = grid.getRows();
+        this.columns = grid.getColumns();
+        this.diagonal = diagonal;
+    }
+
+    private boolean walkable(int row, int column) {
+        return row >= 0 && row < rows && column >= 0 && column < columns && !grid.isBlocked(row, column);
+    }
+
+    /**
+     * 从start搜索到goal
+     *
+     * @return 包含每一个经过格子的完整路径（相邻跳点之间的格子已经补全），找不到解时返回null
+     */
+    public int[] search(int start, int goal) {
+        IntMinHeap frontier = new IntMinHeap();
+        frontier.offer(start, 0.0, heuristic(start, goal));
+        IntStateTable explored = new IntStateTable(1024);
+        explored.put(start, IntGenericSearch.NO_PARENT, 0.0);
+        int[] directions = new int[16];
+
+        while (!frontier.isEmpty()) {
+            int current = frontier.topState();
+            double currentCost = frontier.topCost();
+            frontier.poll();
+            // 已经找到更短路径的旧元素
+            if (currentCost > explored.costOf(current)) {
+                continue;
+            }
+            if (current == goal) {
+                return expand(explored, goal);
+            }
+
+            int row = current / columns;
+            int column = current % columns;
+            int count = prunedDirections(current, explored.parentOf(current), directions);
+            for (int i = 0; i < count; i += 2) {
+                int dRow = directions[i];
+                int dColumn = directions[i + 1];
+                int jumpPoint = jump(row + dRow, column + dColumn, dRow, dColumn, goal);
+                if (jumpPoint < 0) {
+                    continue;
+                }
+                double newCost = currentCost + distance(current, jumpPoint);
+                if (newCost < explored.costOf(jumpPoint)) {
+                    explored.put(jumpPoint, current, newCost);
+                    frontier.offer(jumpPoint, newCost, newCost + heuristic(jumpPoint, goal));
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 根据从父跳点到达当前格子的方向，剪掉可以经由其他路径以相同成本到达的邻居
+     *
+     * @param directions 依次写入(dRow, dColumn)
+     * @return 写入的int个数（方向数的两倍）
+     */
+    private int prunedDirections(int current, int parent, int[] directions) {
+        int row = current / columns;
+        int column = current % columns;
+        int count = 0;
+        // 起点没有方向，所有可以通行的邻居都需要考虑
+        if (parent == IntGenericSearch.NO_PARENT) {
+            for (int dRow = -1; dRow <= 1; dRow++) {
+                for (int dColumn = -1; dColumn <= 1; dColumn++) {
+                    if ((dRow == 0 && dColumn == 0) || (!diagonal && dRow != 0 && dColumn != 0)) {
+                        continue;
+                    }
+                    if (canMove(row, column, dRow, dColumn)) {
+                        directions[count++] = dRow;
+                        directions[count++] = dColumn;
+                    }
+                }
+            }
+            return count;
+        }
+
+        int dRow = Integer.signum(row - parent / columns);
+        int dColumn = Integer.signum(column - parent % columns);
+        if (!diagonal) {
+            if (dColumn != 0) {
+                // 水平移动：上下两侧以及前方
+                directions[count++] = -1;
+                directions[count++] = 0;
+                directions[count++] = 1;
+                directions[count++] = 0;
+                directions[count++] = 0;
+                directions[count++] = dColumn;
+            } else {
+                // 垂直移动：左右两侧以及前方
+                directions[count++] = 0;
+                directions[count++] = -1;
+                directions[count++] = 0;
+                directions[count++] = 1;
+                directions[count++] = dRow;
+                directions[count++] = 0;
+            }
+            return count;
+        }
+
+        if (dRow != 0 && dColumn != 0) {
+            // 对角线移动：两个直线分量以及对角线本身
+            boolean rowWalkable = walkable(row + dRow, column);
+            boolean columnWalkable = walkable(row, column + dColumn);
+            if (rowWalkable) {
+                directions[count++] = dRow;
+                directions[count++] = 0;
+            }
+            if (columnWalkable) {
+                directions[count++] = 0;
+                directions[count++] = dColumn;
+            }
+            if (rowWalkable && columnWalkable) {
+                directions[count++] = dRow;
+                directions[count++] = dColumn;
+            }
+        } else if (dColumn != 0) {
+            // 水平移动：前方、两侧，以及两侧都可通行时的前方对角线
+            boolean forward = walkable(row, column + dColumn);
+            boolean up = walkable(row - 1, column);
+            boolean down = walkable(row + 1, column);
+            if (forward) {
+                directions[count++] = 0;
+                directions[count++] = dColumn;
+                if (up) {
+                    directions[count++] = -1;
+                    directions[count++] = dColumn;
+                }
+                if (down) {
+                    directions[count++] = 1;
+                    directions[count++] = dColumn;
+                }
+            }
+            if (up) {
+                directions[count++] = -1;
+                directions[count++] = 0;
+            }
+            if (down) {
+                directions[count++] = 1;
+                directions[count++] = 0;
+            }
+        } else {
+            // 垂直移动
+            boolean forward = walkable(row + dRow, column);
+            boolean left = walkable(row, column - 1);
+            boolean right = walkable(row, column + 1);
+            if (forward) {
+                directions[count++] = dRow;
+                directions[count++] = 0;
+                if (left) {
+                    directions[count++] = dRow;
+                    directions[count++] = -1;
+                }
+                if (right) {
+                    directions[count++] = dRow;
+                    directions[count++] = 1;
+                }
+            }
+            if (left) {
+                directions[count++] = 0;
+                directions[count++] = -1;
+            }
+            if (right) {
+                directions[count++] = 0;
+                directions[count++] = 1;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 是否可以从(row, column)向(dRow, dColumn)移动一步，对角线移动不能穿过墙角
+     */
+    private boolean canMove(int row, int column, int dRow, int dColumn) {
+        if (!walkable(row + dRow, column + dColumn)) {
+            return false;
+        }
+        return dRow == 0 || dColumn == 0 || (walkable(row + dRow, column) && walkable(row, column + dColumn));
+    }
+
+    /**
+     * 从(row, column)开始沿(dRow, dColumn)方向跳跃，(row, column)是刚从上一个格子移动进入的格子
+     *
+     * @return 找到的跳点编号，撞墙或走出网格时返回-1
+     */
+    private int jump(int row, int column, int dRow, int dColumn, int goal) {
+        while (true) {
+            if (!walkable(row, column)) {
+                return -1;
+            }
+            int id = row * columns + column;
+            if (id == goal) {
+                return id;
+            }
+            if (dRow != 0 && dColumn != 0) {
+                // 对角线移动时，检查两个直线方向上是否存在跳点
+                if (jump(row, column + dColumn, 0, dColumn, goal) >= 0
+                        || jump(row + dRow, column, dRow, 0, goal) >= 0) {
+                    return id;
+                }
+            } else if (dColumn != 0) {
+                // 水平移动时，身后被挡住的上（下）方格子只能经由当前格子到达，即强制邻居
+                if ((walkable(row - 1, column) && !walkable(row - 1, column - dColumn))
+                        || (walkable(row + 1, column) && !walkable(row + 1, column - dColumn))) {
+                    return id;
+                }
+            } else {
+                if ((walkable(row, column - 1) && !walkable(row - dRow, column - 1))
+                        || (walkable(row, column + 1) && !walkable(row - dRow, column + 1))) {
+                    return id;
+                }
+                // 四连通时不能斜着走，垂直移动时需要检查水平方向上是否存在跳点
+                if (!diagonal && (jump(row, column + 1, 0, 1, goal) >= 0 || jump(row, column - 1, 0, -1, goal) >= 0)) {
+                    return id;
+                }
+            }
+            if (!canMove(row, column, dRow, dColumn)) {
+                return -1;
+            }
+            row += dRow;
+            column += dColumn;
+        }
+    }
+
+    /**
+     * 两个跳点之间的距离，跳点之间总是位于同一条直线或对角线上
+     */
+    private double distance(int from, int to) {
+        int dRow = Math.abs(from / columns - to / columns);
+        int dColumn = Math.abs(from % columns - to % columns);
+        if (!diagonal) {
+            return dRow + dColumn;
+        }
+        return Math.max(dRow, dColumn) + (SQRT2 - 1) * Math.min(dRow, dColumn);
+    }
+
+    /**
+     * 四连通使用曼哈顿距离，八连通使用octile距离
+     */
+    private double heuristic(int id, int goal) {
+        return distance(id, goal);
+    }
+
+    /**
+     * 沿着跳点的父节点回溯，并补全相邻跳点之间的格子
+     */
+    private int[] expand(IntStateTable explored, int goal) {
+        List<Integer> jumpPoints = new ArrayList<>();
+        for (int id = goal; id != IntGenericSearch.NO_PARENT; id = explored.parentOf(id)) {
+            jumpPoints.add(id);
+        }
+        int length = 1;
+        for (int i = jumpPoints.size() - 1; i > 0; i--) {
+            int from = jumpPoints.get(i);
+            int to = jumpPoints.get(i - 1);
+            length += Math.max(Math.abs(from / columns - to / columns), Math.abs(from % columns - to % columns));
+        }
+        int[] path = new int[length];
+        int index = 0;
+        path[index++] = jumpPoints.get(jumpPoints.size() - 1);
+        for (int i = jumpPoints.size() - 1; i > 0; i--) {
+            int from = jumpPoints.get(i);
+            int to = jumpPoints.get(i - 1);
+            int step = Integer.signum(to / columns - from / columns) * columns + Integer.signum(to % columns - from % columns);
+            for (int id = from + step; id != to; id += step) {
+                path[index++] = id;
+            }
+            path[index++] = to;
+        }
+        return path;
+    }
+
+    /**
+     * Maze的便捷入口，返回由MazeLocation组成的路径
+     */
+    public static List<MazeLocation> search(Maze maze, MazeLocation start, MazeLocation goal, boolean diagonal) {
+        JumpPointSearch jps = new JumpPointSearch(maze, diagonal);
+        int[] path = jps.search(maze.toId(start), maze.toId(goal));
+        if (path == null) {
+            return null;
+        }
+        List<MazeLocation> locations = new ArrayList<>(path.length);
+        for (int id : path) {
+            locations.add(maze.fromId(id));
+        }
+        return locations;
+    }
+}
@@ -0,0 +1,258 @@
+package com.teapot.chapter2.maze;
+
+import com.teapot.chapter2.IntGenericSearch;
+import com.teapot.chapter2.IntGenericSearch.IntSolution;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 通过内存映射文件读取的迷宫
+ * 网格保存在MappedByteBuffer中，由操作系统按需分页载入，不会复制到Java堆上，打开一个很大的迷宫几乎不需要时间，
+ * 搜索直接读取映射的字节（堆上只保留搜索本身需要的已访问集合）
+ * 支持两种文件格式：
+ * 1. 文本格式：与Maze.toString相同，每行一个网格行，' '为空，'X'为路障，'S'为起点，'G'为终点，所有行的长度必须相同
+ * 2. 二进制格式：4字节魔数"MAZE"，随后是int类型的rows、columns、start、goal（大端序），
+ *    之后按行优先顺序每个格子占1位（1表示路障），每个字节从低位开始存放
+ */
+public class MappedMaze implements MazeGrid {
+    private static final byte[] MAGIC = "MAZE".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = MAGIC.length + 4 * Integer.BYTES;
+
+    private final MappedByteBuffer buffer;
+    private final boolean binary;
+    private final int rows, columns;
+    // 文本格式中每行占用的字节数（包含换行符）
+    private final int stride;
+    private final int start, goal;
+
+    private MappedMaze(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        binary = hasMagic(buffer);
+        if (binary) {
+            rows = buffer.getInt(MAGIC.length);
+            columns = buffer.getInt(MAGIC.length + Integer.BYTES);
+            start = buffer.getInt(MAGIC.length + 2 * Integer.BYTES);
+            goal = buffer.getInt(MAGIC.length + 3 * Integer.BYTES);
+            stride = 0;
+            // 位置编号row * columns + column必须在int范围内，起点和终点必须在网格中
+            long cells = (long) rows * columns;
+            if (rows <= 0 || columns <= 0 || cells > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid binary maze size: " + rows + " x " + columns);
+            }
+            if (start < 0 || start >= cells || goal < 0 || goal >= cells) {
+                throw new IllegalArgumentException("Start or goal outside the maze: " + start + ", " + goal);
+            }
+            long expected = HEADER_SIZE + ((long) rows * columns + 7) / 8;
+            if (buffer.capacity() < expected) {
+                throw new IllegalArgumentException("Binary maze file is truncated");
+            }
+        } else {
+            int size = buffer.capacity();
+            int newline = 0;
+            while (newline < size && buffer.get(newline) != '\n') {
+                newline++;
+            }
+            columns = newline > 0 && buffer.get(newline - 1) == '\r' ? newline - 1 : newline;
+            stride = newline + 1;
+            // 最后一行可以没有换行符
+            int padded = size % stride == 0 ? size : size + (stride - columns);
+            if (padded % stride != 0) {
+                throw new IllegalArgumentException("Rows of a text maze should have the same length");
+            }
+            rows = padded / stride;
+            checkRows();
+            start = find((byte) 'S');
+            goal = find((byte) 'G');
+        }
+    }
+
+    private static boolean hasMagic(MappedByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_SIZE) {
+            return false;
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (buffer.get(i) != MAGIC[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 检查文本格式的每一行：格子中没有换行符，行尾的换行符（以及第一行有'\r'时的'\r'）在相同的位置，
+     * 最后一行可以没有换行符
+     */
+    private void checkRows() {
+        int size = buffer.capacity();
+        for (int row = 0; row < rows; row++) {
+            int begin = row * stride;
+            for (int position = begin; position < begin + stride && position < size; position++) {
+                byte code = buffer.get(position);
+                boolean valid = position == begin + stride - 1 ? code == '\n'
+                        : position >= begin + columns ? code == '\r' : code != '\n' && code != '\r';
+                if (!valid) {
+                    throw new IllegalArgumentException("Rows of a text maze should have the same length");
+                }
+            }
+        }
+    }
+
+    /**
+     * 在文本格式中查找指定字符第一次出现的位置
+     */
+    private int find(byte code) {
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                if (buffer.get(row * stride + column) == code) {
+                    return row * columns + column;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Text maze has no '" + (char) code + "' cell");
+    }
+
+    /**
+     * 以只读方式映射迷宫文件，根据文件开头的魔数判断格式
+     */
+    public static MappedMaze open(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Maze file larger than 2GB: " + path);
+            }
+            // 关闭通道之后映射仍然有效
+            return new MappedMaze(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 以二进制格式保存迷宫，逐行写出，不需要在内存中构建完整的文件
+     */
+    public static void writeBinary(MazeGrid grid, int start, int goal, Path path) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.write(MAGIC);
+            out.writeInt(grid.getRows());
+            out.writeInt(grid.getColumns());
+            out.writeInt(start);
+            out.writeInt(goal);
+            int bits = 0;
+            int bitCount = 0;
+            for (int row = 0; row < grid.getRows(); row++) {
+                for (int column = 0; column < grid.getColumns(); column++) {
+                    if (grid.isBlocked(row, column)) {
+                        bits |= 1 << bitCount;
+                    }
+                    if (++bitCount == 8) {
+                        out.write(bits);
+                        bits = 0;
+                        bitCount = 0;
+                    }
+                }
+            }
+            if (bitCount > 0) {
+                out.write(bits);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 以文本格式保存迷宫
+     */
+    public static void writeText(MazeGrid grid, int start, int goal, Path path) {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(path))) {
+            int columns = grid.getColumns();
+            for (int row = 0; row < grid.getRows(); row++) {
+                for (int column = 0; column < columns; column++) {
+                    int id = row * columns + column;
+                    if (id == start) {
+                        out.write('S');
+                    } else if (id == goal) {
+                        out.write('G');
+                    } else {
+                        out.write(grid.isBlocked(row, column) ? 'X' : ' ');
+                    }
+                }
+                out.write('\n');
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getStart() {
+        return start;
+    }
+
+    public int getGoal() {
+        return goal;
+    }
+
+    @Override
+    public boolean isBlocked(int row, int column) {
+        if (binary) {
+            long bit = (long) row * columns + column;
+            return (buffer.get(HEADER_SIZE + (int) (bit >>> 3)) & (1 << (bit & 7))) != 0;
+        }
+        return buffer.get(row * stride + column) == 'X';
+    }
+
+    public boolean goalTest(int id) {
+        return id == goal;
+    }
+
+    /**
+     * 到终点的曼哈顿距离
+     */
+    public double manhattanDistance(int id) {
+        int row = id / columns;
+        int column = id - row * columns;
+        return Math.abs(row - goal / columns) + Math.abs(column - goal % columns);
+    }
+
+    public static void main(String[] args) throws IOException {
+        // 生成一个迷宫并分别以二进制和文本格式保存，再通过内存映射读取求解
+        CompactMaze compactMaze = new CompactMaze(1000, 1000, 0.2, 42);
+        Path binaryFile = Files.createTempFile("maze", ".bin");
+        Path textFile = Files.createTempFile("maze", ".txt");
+        try {
+            writeBinary(compactMaze, compactMaze.getStart(), compactMaze.getGoal(), binaryFile);
+            writeText(compactMaze, compactMaze.getStart(), compactMaze.getGoal(), textFile);
+            for (Path file : new Path[]{binaryFile, textFile}) {
+                MappedMaze m = open(file);
+                IntSolution solution = IntGenericSearch.astar(m.getStart(), m::goalTest, m::successors, 4,
+                        m::manhattanDistance);
+                if (solution == null) {
+                    System.out.println("No solution found for " + file.getFileName());
+                } else {
+                    System.out.println(file.getFileName() + ": " + m.getRows() + " x " + m.getColumns()
+                            + ", path length " + solution.path().length);
+                }
+            }
+        } finally {
+            Files.deleteIfExists(binaryFile);
+            Files.deleteIfExists(textFile);
+        }
+    }
+}
@@ -2,6 +2,8 @@ package com.teapot.chapter2.maze;
 
 import com.teapot.chapter2.GenericSearch;
 import com.teapot.chapter2.GenericSearch.Node;
+import com.teapot.chapter2.IntGenericSearch;
+import com.teapot.chapter2.IntGenericSearch.IntSolution;
 
 import java.util.*;
 
@@ -10,7 +12,7 @@ import java.util.*;
  * 迷宫求解
  * 迷宫是由一些Cell组成的二维网格，分别使用DFS、BFS、AStar搜索解决迷宫问题
  */
-public class Maze {
+public class Maze implements MazeGrid {
     public enum Cell {
         EMPTY(" "),
         BLOCKED("X"),
@@ -86,6 +88,21 @@ public class Maze {
         this(10, 10, new MazeLocation(0, 0), new MazeLocation(9, 9), 0.2);
     }
 
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getColumns() {
+        return columns;
+    }
+
+    @Override
+    public boolean isBlocked(int row, int column) {
+        return grid[row][column] == Cell.BLOCKED;
+    }
+
     /**
      * 随机填充迷宫路障
      *
@@ -140,6 +157,57 @@ public class Maze {
         return locations;
     }
 
+    /**
+     * 将位置编码为整数状态：row * columns + column，供IntGenericSearch使用
+     */
+    public int toId(MazeLocation ml) {
+        return ml.row * columns + ml.column;
+    }
+
+    public MazeLocation fromId(int id) {
+        return new MazeLocation(id / columns, id % columns);
+    }
+
+    public boolean goalTest(int id) {
+        return id == toId(goal);
+    }
+
+    /**
+     * 整数状态版本的后继函数，将可以行进的相邻位置写入buffer，不分配任何对象
+     *
+     * @param buffer 长度至少为4
+     * @return 后继位置的个数
+     */
+    @Override
+    public int successors(int id, int[] buffer) {
+        int row = id / columns;
+        int column = id % columns;
+        int count = 0;
+        if (row + 1 < rows && grid[row + 1][column] != Cell.BLOCKED) {
+            buffer[count++] = id + columns;
+        }
+        if (row - 1 >= 0 && grid[row - 1][column] != Cell.BLOCKED) {
+            buffer[count++] = id - columns;
+        }
+        if (column + 1 < columns && grid[row][column + 1] != Cell.BLOCKED) {
+            buffer[count++] = id + 1;
+        }
+        if (column - 1 >= 0 && grid[row][column - 1] != Cell.BLOCKED) {
+            buffer[count++] = id - 1;
+        }
+        return count;
+    }
+
+    /**
+     * 整数状态版本的曼哈顿距离，直接由id计算行列，不创建MazeLocation
+     * 取坐标差的绝对值，是可采纳的启发函数，与CompactMaze.manhattanDistance相同
+     */
+    public double manhattanDistance(int id) {
+        int row = id / columns;
+        int column = id - row * columns;
+        return Math.abs(row - goal.row) + Math.abs(column - goal.column);
+    }
+
     /**
      * 标记迷宫中的成功路径、起始路径和终点路径
      */
@@ -210,5 +278,40 @@ public class Maze {
             System.out.println(m);
             m.clear(path3);
         }
+
+        // 使用整数状态的广度优先搜索
+        IntSolution solution4 = IntGenericSearch.bfs(m.toId(m.start), m::goalTest, m::successors, 4);
+        if (solution4 == null) {
+            System.out.println("No solution found using int-state breadth-first search!");
+        } else {
+            List<MazeLocation> path4 = new ArrayList<>();
+            for (int id : solution4.path()) {
+                path4.add(m.fromId(id));
+            }
+            m.mark(path4);
+            System.out.println(m);
+            m.clear(path4);
+        }
+
+        // 迭代加深A*搜索，只保存当前路径，使用容量为1000的置换表避免重复搜索
+        Node<MazeLocation> solution5 = GenericSearch.idaStar(m.start, m::goalTest, m::successors, m::manhattanDistance, 1000);
+        if (solution5 == null) {
+            System.out.println("No solution found using iterative-deepening A*!");
+        } else {
+            List<MazeLocation> path5 = GenericSearch.nodeToPath(solution5);
+            m.mark(path5);
+            System.out.println(m);
+            m.clear(path5);
+        }
+
+        // 跳点搜索，只扩展跳点，得到与A*相同长度的最短路径
+        List<MazeLocation> path6 = JumpPointSearch.search(m, m.start, m.goal, false);
+        if (path6 == null) {
+            System.out.println("No solution found using jump point search!");
+        } else {
+            m.mark(path6);
+            System.out.println(m);
+            m.clear(path6);
+        }
     }
 }
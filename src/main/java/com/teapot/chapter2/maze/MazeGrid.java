@@ -0,0 +1,39 @@
+package com.teapot.chapter2.maze;
+
+/**
+ * 二维网格迷宫的只读视图，位置编码为 row * columns + column
+ */
+public interface MazeGrid {
+    int getRows();
+
+    int getColumns();
+
+    boolean isBlocked(int row, int column);
+
+    /**
+     * 检查当前位置的上下左右是否存在可以行进的路径，顺序与Maze.successors相同，可以直接用作IntSuccessors
+     *
+     * @param buffer 长度至少为4
+     * @return 后继位置的个数
+     */
+    default int successors(int id, int[] buffer) {
+        int rows = getRows();
+        int columns = getColumns();
+        int row = id / columns;
+        int column = id - row * columns;
+        int count = 0;
+        if (row + 1 < rows && !isBlocked(row + 1, column)) {
+            buffer[count++] = id + columns;
+        }
+        if (row - 1 >= 0 && !isBlocked(row - 1, column)) {
+            buffer[count++] = id - columns;
+        }
+        if (column + 1 < columns && !isBlocked(row, column + 1)) {
+            buffer[count++] = id + 1;
+        }
+        if (column - 1 >= 0 && !isBlocked(row, column - 1)) {
+            buffer[count++] = id - 1;
+        }
+        return count;
+    }
+}
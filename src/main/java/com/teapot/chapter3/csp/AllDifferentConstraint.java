@@ -0,0 +1,237 @@
+package com.teapot.chapter3.csp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 所有变量的值互不相同
+ * 1. 增量状态记录每个值被使用的次数以及重复的个数，赋值和撤销都是O(1)
+ * 2. 启用约束传播时使用Régin的匹配过滤算法：变量和值构成二分图，约束可以满足当且仅当存在覆盖所有变量的匹配，
+ *    值v可以留在变量x的域中当且仅当边(x, v)属于某个最大匹配，一次过滤即可删除所有这样的值，
+ *    例如三个变量的域都是{1, 2}时直接判定失败，两个变量的域都是{1, 2}时从其他变量的域中删除1和2
+ */
+public class AllDifferentConstraint<V, D> extends IncrementalConstraint<V, D> implements FilteringConstraint<V, D> {
+
+    public AllDifferentConstraint(List<V> variables) {
+        super(variables);
+    }
+
+    @Override
+    public boolean satisfied(Map<V, D> assignment) {
+        HashSet<D> values = new HashSet<>();
+        for (V variable : variables) {
+            D value = assignment.get(variable);
+            if (value != null && !values.add(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public State<V, D> newState() {
+        return new State<>() {
+            private final Map<D, Integer> counts = new HashMap<>();
+            private int duplicates;
+
+            @Override
+            public boolean assigned(V variable, D value) {
+                if (counts.merge(value, 1, Integer::sum) > 1) {
+                    duplicates++;
+                }
+                return duplicates == 0;
+            }
+
+            @Override
+            public void unassigned(V variable, D value) {
+                if (counts.merge(value, -1, Integer::sum) > 0) {
+                    duplicates--;
+                }
+            }
+        };
+    }
+
+    /**
+     * Régin过滤
+     * 已知一个最大匹配M时，不在M中的边(x, v)属于某个最大匹配，当且仅当：
+     * 1. 它位于从自由值（没有被匹配的值）出发的偶数长度交错路径上，或者
+     * 2. 它位于某个交错环上，即x和v在有向图的同一个强连通分量中
+     * 有向图中匹配边从变量指向值，其余的边从值指向变量
+     */
+    @Override
+    public boolean filter(CSPSolver<V, D> solver) {
+        int k = variables.size();
+        // 为所有出现的值编号，变量是节点0 ~ k-1，值是节点k ~ k+m-1
+        Map<D, Integer> valueIds = new HashMap<>();
+        List<D> values = new ArrayList<>();
+        int[][] domains = new int[k][];
+        for (int x = 0; x < k; x++) {
+            V variable = variables.get(x);
+            List<D> domain = solver.isAssigned(variable) ? List.of(solver.getAssignment().get(variable))
+                    : solver.currentDomain(variable);
+            domains[x] = new int[domain.size()];
+            for (int i = 0; i < domain.size(); i++) {
+                D value = domain.get(i);
+                Integer id = valueIds.get(value);
+                if (id == null) {
+                    id = values.size();
+                    valueIds.put(value, id);
+                    values.add(value);
+                }
+                domains[x][i] = id;
+            }
+        }
+        int m = values.size();
+        if (m < k) {
+            return false;
+        }
+
+        int[] variableMatch = new int[k];
+        int[] valueMatch = new int[m];
+        Arrays.fill(variableMatch, -1);
+        Arrays.fill(valueMatch, -1);
+        for (int x = 0; x < k; x++) {
+            if (!augment(x, domains, variableMatch, valueMatch, new boolean[m])) {
+                return false;
+            }
+        }
+
+        // 每个值可以到达的变量（不在匹配中的边）
+        List<List<Integer>> valueToVariables = new ArrayList<>();
+        for (int v = 0; v < m; v++) {
+            valueToVariables.add(new ArrayList<>());
+        }
+        for (int x = 0; x < k; x++) {
+            for (int v : domains[x]) {
+                if (variableMatch[x] != v) {
+                    valueToVariables.get(v).add(x);
+                }
+            }
+        }
+
+        // 从自由值出发可以到达的值
+        boolean[] reachable = new boolean[m];
+        int[] stack = new int[m];
+        int top = 0;
+        for (int v = 0; v < m; v++) {
+            if (valueMatch[v] < 0) {
+                reachable[v] = true;
+                stack[top++] = v;
+            }
+        }
+        while (top > 0) {
+            int v = stack[--top];
+            for (int x : valueToVariables.get(v)) {
+                int next = variableMatch[x];
+                if (!reachable[next]) {
+                    reachable[next] = true;
+                    stack[top++] = next;
+                }
+            }
+        }
+
+        int[] components = new Tarjan(k, m, variableMatch, valueToVariables).run();
+        for (int x = 0; x < k; x++) {
+            V variable = variables.get(x);
+            if (solver.isAssigned(variable)) {
+                continue;
+            }
+            for (int v : domains[x]) {
+                if (variableMatch[x] == v || reachable[v] || components[x] == components[k + v]) {
+                    continue;
+                }
+                if (!solver.removeValue(variable, values.get(v))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 匈牙利算法：为变量x寻找增广路
+     */
+    private static boolean augment(int x, int[][] domains, int[] variableMatch, int[] valueMatch, boolean[] visited) {
+        for (int v : domains[x]) {
+            if (visited[v]) {
+                continue;
+            }
+            visited[v] = true;
+            if (valueMatch[v] < 0 || augment(valueMatch[v], domains, variableMatch, valueMatch, visited)) {
+                variableMatch[x] = v;
+                valueMatch[v] = x;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Tarjan强连通分量算法，节点0 ~ k-1是变量，k ~ k+m-1是值
+     */
+    private static final class Tarjan {
+        private final int k;
+        private final int[] variableMatch;
+        private final List<List<Integer>> valueToVariables;
+        private final int[] index, lowLink, components;
+        private final boolean[] onStack;
+        private final int[] stack;
+        private int top, counter, componentCount;
+
+        Tarjan(int k, int m, int[] variableMatch, List<List<Integer>> valueToVariables) {
+            this.k = k;
+            this.variableMatch = variableMatch;
+            this.valueToVariables = valueToVariables;
+            index = new int[k + m];
+            lowLink = new int[k + m];
+            components = new int[k + m];
+            onStack = new boolean[k + m];
+            stack = new int[k + m];
+            Arrays.fill(index, -1);
+        }
+
+        int[] run() {
+            for (int node = 0; node < index.length; node++) {
+                if (index[node] < 0) {
+                    visit(node);
+                }
+            }
+            return components;
+        }
+
+        private void visit(int node) {
+            index[node] = lowLink[node] = counter++;
+            stack[top++] = node;
+            onStack[node] = true;
+            if (node < k) {
+                visitEdge(node, k + variableMatch[node]);
+            } else {
+                for (int x : valueToVariables.get(node - k)) {
+                    visitEdge(node, x);
+                }
+            }
+            if (lowLink[node] == index[node]) {
+                int member;
+                do {
+                    member = stack[--top];
+                    onStack[member] = false;
+                    components[member] = componentCount;
+                } while (member != node);
+                componentCount++;
+            }
+        }
+
+        private void visitEdge(int node, int next) {
+            if (index[next] < 0) {
+                visit(next);
+                lowLink[node] = Math.min(lowLink[node], lowLink[next]);
+            } else if (onStack[next]) {
+                lowLink[node] = Math.min(lowLink[node], index[next]);
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.teapot.chapter3.csp;
+
+import java.util.*;
+
+/**
+ * 回溯搜索使用的变量赋值
+ * 值保存在按变量编号（变量在CSP变量列表中的位置）索引的数组中，赋值顺序记录在轨迹上，
+ * 回溯时撤销到之前记录的位置即可，整个搜索过程中只有这一份赋值，不需要在每一层复制HashMap
+ * 只接受Map的旧约束通过asMap()读取，它是不复制数据的只读视图
+ *
+ * @param <V> 变量
+ * @param <D> 值域
+ */
+public class Assignment<V, D> {
+    private final List<V> variables;
+    private final Map<V, Integer> ids;
+    private final Object[] values;
+    // 已赋值变量的编号，按赋值顺序排列
+    private final int[] trail;
+    private int size;
+    private final Map<V, D> view = new MapView();
+
+    public Assignment(List<V> variables) {
+        this.variables = variables;
+        ids = new HashMap<>();
+        for (int id = 0; id < variables.size(); id++) {
+            ids.put(variables.get(id), id);
+        }
+        values = new Object[variables.size()];
+        trail = new int[variables.size()];
+    }
+
+    /**
+     * 变量编号，变量不属于该CSP时返回-1
+     */
+    public int indexOf(V variable) {
+        Integer id = ids.get(variable);
+        return id == null ? -1 : id;
+    }
+
+    public V variable(int id) {
+        return variables.get(id);
+    }
+
+    public int variableCount() {
+        return values.length;
+    }
+
+    /**
+     * 已赋值变量的个数
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isComplete() {
+        return size == values.length;
+    }
+
+    /**
+     * 第k个被赋值的变量的编号
+     */
+    public int assignedAt(int k) {
+        return trail[k];
+    }
+
+    /**
+     * 按编号访问的方法与按变量访问的方法使用不同的名字，避免变量本身是Integer时重载产生歧义
+     */
+    public boolean hasValue(int id) {
+        return values[id] != null;
+    }
+
+    public boolean isAssigned(V variable) {
+        int id = indexOf(variable);
+        return id >= 0 && values[id] != null;
+    }
+
+    /**
+     * 编号为id的变量的值，未赋值时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public D valueOf(int id) {
+        return (D) values[id];
+    }
+
+    public D get(V variable) {
+        int id = indexOf(variable);
+        return id < 0 ? null : valueOf(id);
+    }
+
+    /**
+     * 为编号为id的未赋值变量赋值
+     */
+    public void set(int id, D value) {
+        if (values[id] != null) {
+            throw new IllegalStateException("Variable already assigned: " + variables.get(id));
+        }
+        values[id] = Objects.requireNonNull(value);
+        trail[size++] = id;
+    }
+
+    public void assign(V variable, D value) {
+        set(ids.get(variable), value);
+    }
+
+    /**
+     * 当前轨迹的位置，之后可以通过undo撤销这之后的所有赋值
+     */
+    public int mark() {
+        return size;
+    }
+
+    public void undo(int mark) {
+        while (size > mark) {
+            values[trail[--size]] = null;
+        }
+    }
+
+    /**
+     * 只读的Map视图，随赋值的变化而变化
+     */
+    public Map<V, D> asMap() {
+        return view;
+    }
+
+    /**
+     * 复制当前赋值
+     */
+    public Map<V, D> toMap() {
+        Map<V, D> map = new HashMap<>();
+        for (int k = 0; k < size; k++) {
+            map.put(variables.get(trail[k]), valueOf(trail[k]));
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+
+    private final class MapView extends AbstractMap<V, D> {
+        private final Set<Entry<V, D>> entries = new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<V, D>> iterator() {
+                return new Iterator<>() {
+                    private int k;
+
+                    @Override
+                    public boolean hasNext() {
+                        return k < size;
+                    }
+
+                    @Override
+                    public Entry<V, D> next() {
+                        if (k >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        int id = trail[k++];
+                        return new SimpleImmutableEntry<>(variables.get(id), valueOf(id));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+
+        @Override
+        public Set<Entry<V, D>> entrySet() {
+            return entries;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public boolean containsKey(Object key) {
+            return isAssigned((V) key);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public D get(Object key) {
+            return Assignment.this.get((V) key);
+        }
+    }
+}
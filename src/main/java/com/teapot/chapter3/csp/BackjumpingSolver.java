@@ -0,0 +1,257 @@
+package com.teapot.chapter3.csp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 冲突导向回溯（conflict-directed backjumping, CBJ）与nogood学习
+ * 每一层记录冲突集：导致这一层的值失败的、更早赋值的变量
+ * 1. 某个值违反约束时，只把约束中真正造成冲突的变量加入冲突集（按赋值顺序找到最早的失败前缀）
+ * 2. 所有的值都失败时，直接跳回冲突集中最深的变量，并把其余的冲突合并到它的冲突集中，
+ *    中间的变量与失败无关，按时间顺序回溯会在它们的每个组合下重复同样的失败
+ * 3. 被跳过的冲突集连同其中变量当前的值是一个nogood，记录在NogoodStore中，之后的赋值再次组成它时立即剪枝
+ * 变量按MRV选择（当前相容值最少的优先），值按域中的顺序尝试，不使用CSP上设置的策略和约束传播
+ *
+ * @param <V> 变量
+ * @param <D> 值域
+ */
+public class BackjumpingSolver<V, D> {
+    private final CSP<V, D> csp;
+    private final List<V> variables;
+    private final Assignment<V, D> assignment;
+    private final NogoodStore nogoods;
+    // 变量所在的层，未赋值或者属于初始赋值时为-1
+    private final int[] depthOf;
+    private final List<Level<D>> levels = new ArrayList<>();
+    // 解释冲突时重新求值约束使用的部分赋值
+    private final Map<V, D> probe = new HashMap<>();
+    private long nodes;
+
+    /**
+     * 搜索栈中的一层
+     */
+    private static final class Level<D> {
+        final int id;
+        final List<D> values;
+        final int mark;
+        final BitSet conflicts = new BitSet();
+        int next;
+
+        Level(int id, List<D> values, int mark) {
+            this.id = id;
+            this.values = values;
+            this.mark = mark;
+        }
+    }
+
+    /**
+     * @param nogoodCapacity 最多保存的nogood个数，为0时不学习nogood，只做回跳
+     */
+    public BackjumpingSolver(CSP<V, D> csp, int nogoodCapacity) {
+        this.csp = csp;
+        variables = csp.getVariables();
+        assignment = new Assignment<>(variables);
+        nogoods = new NogoodStore(variables.size(), nogoodCapacity);
+        depthOf = new int[variables.size()];
+        Arrays.fill(depthOf, -1);
+    }
+
+    /**
+     * 尝试过的赋值次数
+     */
+    public long nodeCount() {
+        return nodes;
+    }
+
+    /**
+     * 当前保存的nogood个数
+     */
+    public int nogoodCount() {
+        return nogoods.size();
+    }
+
+    /**
+     * @param initial 已经确定的部分赋值，不会被回跳撤销
+     * @return 找不到解时返回null
+     */
+    public Map<V, D> solve(Map<V, D> initial) {
+        for (Map.Entry<V, D> entry : initial.entrySet()) {
+            assignment.assign(entry.getKey(), entry.getValue());
+        }
+        for (V variable : initial.keySet()) {
+            if (!csp.constraint(variable, assignment)) {
+                return null;
+            }
+        }
+        if (assignment.isComplete()) {
+            return assignment.toMap();
+        }
+        push(select());
+        while (!levels.isEmpty()) {
+            Level<D> level = levels.get(levels.size() - 1);
+            // 撤销这一层上一次尝试的值
+            assignment.undo(level.mark);
+            if (level.next == level.values.size()) {
+                if (!backjump(level)) {
+                    return null;
+                }
+                continue;
+            }
+            D value = level.values.get(level.next++);
+            nodes++;
+            assignment.set(level.id, value);
+            if (!consistent(level, value)) {
+                continue;
+            }
+            if (assignment.isComplete()) {
+                return assignment.toMap();
+            }
+            push(select());
+        }
+        return null;
+    }
+
+    private void push(int id) {
+        depthOf[id] = levels.size();
+        levels.add(new Level<>(id, csp.getDomain(variables.get(id)), assignment.mark()));
+    }
+
+    /**
+     * 这一层的所有值都失败了：记录nogood，跳回冲突集中最深的变量
+     *
+     * @return 冲突集为空（失败只取决于初始赋值）时返回false，问题无解
+     */
+    private boolean backjump(Level<D> level) {
+        BitSet conflicts = level.conflicts;
+        if (conflicts.isEmpty()) {
+            return false;
+        }
+        learn(conflicts);
+        int target = -1;
+        for (int id = conflicts.nextSetBit(0); id >= 0; id = conflicts.nextSetBit(id + 1)) {
+            target = Math.max(target, depthOf[id]);
+        }
+        while (levels.size() - 1 > target) {
+            depthOf[levels.remove(levels.size() - 1).id] = -1;
+        }
+        Level<D> culprit = levels.get(target);
+        culprit.conflicts.or(conflicts);
+        culprit.conflicts.clear(culprit.id);
+        return true;
+    }
+
+    private void learn(BitSet conflicts) {
+        int[] ids = conflicts.stream().toArray();
+        Object[] values = new Object[ids.length];
+        for (int k = 0; k < ids.length; k++) {
+            values[k] = assignment.valueOf(ids[k]);
+        }
+        nogoods.add(new NogoodStore.Nogood(ids, values));
+    }
+
+    /**
+     * 检查刚刚赋值的level.id = value，失败时把冲突的变量加入这一层的冲突集
+     */
+    private boolean consistent(Level<D> level, D value) {
+        V variable = variables.get(level.id);
+        for (Constraint<V, D> constraint : csp.getConstraints(variable)) {
+            if (!constraint.satisfied(assignment)) {
+                explain(constraint, level, value);
+                return false;
+            }
+        }
+        NogoodStore.Nogood nogood = nogoods.violated(assignment, level.id, value);
+        if (nogood != null) {
+            for (int id : nogood.ids) {
+                if (id != level.id) {
+                    level.conflicts.set(id);
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 找出约束中造成冲突的已赋值变量
+     * 按赋值顺序逐步加入约束中的其他变量，二分查找最短的失败前缀，回跳的目标就是前缀中最后一个变量；
+     * 如果只有这一个变量就足以造成失败（例如皇后问题中攻击新皇后的那一个），冲突集中只放它
+     */
+    private void explain(Constraint<V, D> constraint, Level<D> level, D value) {
+        List<Integer> assigned = new ArrayList<>();
+        for (V other : constraint.variables) {
+            int id = assignment.indexOf(other);
+            if (id != level.id && depthOf[id] >= 0 && assignment.hasValue(id)) {
+                assigned.add(id);
+            }
+        }
+        if (assigned.size() <= 1) {
+            assigned.forEach(level.conflicts::set);
+            return;
+        }
+        assigned.sort((a, b) -> Integer.compare(depthOf[a], depthOf[b]));
+        int low = 1;
+        int high = assigned.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (violatedBy(constraint, level, value, assigned.subList(0, middle))) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        List<Integer> culprit = assigned.subList(high - 1, high);
+        List<Integer> explanation = violatedBy(constraint, level, value, culprit) ? culprit
+                : assigned.subList(0, high);
+        explanation.forEach(level.conflicts::set);
+    }
+
+    /**
+     * 只包含初始赋值、level.id = value以及ids中的变量时约束是否被违反
+     */
+    private boolean violatedBy(Constraint<V, D> constraint, Level<D> level, D value, List<Integer> ids) {
+        probe.clear();
+        for (V other : constraint.variables) {
+            int id = assignment.indexOf(other);
+            if (depthOf[id] < 0 && assignment.hasValue(id)) {
+                probe.put(other, assignment.valueOf(id));
+            }
+        }
+        probe.put(variables.get(level.id), value);
+        for (int id : ids) {
+            probe.put(variables.get(id), assignment.valueOf(id));
+        }
+        return !constraint.satisfied(probe);
+    }
+
+    /**
+     * MRV：选择当前相容值（满足约束且不违反nogood）最少的未赋值变量
+     */
+    private int select() {
+        int best = -1;
+        int bestCount = Integer.MAX_VALUE;
+        for (int id = 0; id < variables.size() && bestCount > 0; id++) {
+            if (assignment.hasValue(id)) {
+                continue;
+            }
+            int count = 0;
+            for (D value : csp.getDomain(variables.get(id))) {
+                int mark = assignment.mark();
+                assignment.set(id, value);
+                if (csp.constraint(variables.get(id), assignment) && nogoods.violated(assignment, id, value) == null) {
+                    count++;
+                }
+                assignment.undo(mark);
+            }
+            if (count < bestCount) {
+                best = id;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+}
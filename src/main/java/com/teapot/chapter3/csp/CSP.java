@@ -2,8 +2,22 @@ package com.teapot.chapter3.csp;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * P52
@@ -13,9 +27,15 @@ import java.util.Map;
  * @param <D> 值域
  */
 public class CSP<V, D> {
+    // 随机重启搜索中Luby序列的单位，第i次运行最多失败luby(i) * RESTART_UNIT次
+    private static final int RESTART_UNIT = 100;
+
     private final List<V> variables;
     private final Map<V, List<D>> domains;
     private final Map<V, List<Constraint<V, D>>> constraints = new HashMap<>();
+    private VariableSelector<V, D> variableSelector = Heuristics.staticOrder();
+    private ValueOrderer<V, D> valueOrderer = Heuristics.domainOrder();
+    private Propagation propagation = Propagation.NONE;
 
     public CSP(List<V> variables, Map<V, List<D>> domains) {
         this.variables = variables;
@@ -37,6 +57,39 @@ public class CSP<V, D> {
         }
     }
 
+    public List<V> getVariables() {
+        return variables;
+    }
+
+    public List<D> getDomain(V variable) {
+        return domains.get(variable);
+    }
+
+    public List<Constraint<V, D>> getConstraints(V variable) {
+        return constraints.get(variable);
+    }
+
+    /**
+     * 设置变量选择策略，默认按变量列表的顺序，参见Heuristics
+     */
+    public void setVariableSelector(VariableSelector<V, D> variableSelector) {
+        this.variableSelector = variableSelector;
+    }
+
+    /**
+     * 设置值排序策略，默认按域中的顺序，参见Heuristics
+     */
+    public void setValueOrderer(ValueOrderer<V, D> valueOrderer) {
+        this.valueOrderer = valueOrderer;
+    }
+
+    /**
+     * 设置每次赋值之后的约束传播方式，默认不传播
+     */
+    public void setPropagation(Propagation propagation) {
+        this.propagation = propagation;
+    }
+
     /**
      * 判断给定的变量配置和所选域值是否满足约束
      *
@@ -54,6 +107,18 @@ public class CSP<V, D> {
         return true;
     }
 
+    /**
+     * 与constraint(V, Map)相同，约束直接读取回溯搜索使用的赋值
+     */
+    public boolean constraint(V variable, Assignment<V, D> assignment) {
+        for (Constraint<V, D> constraint : constraints.get(variable)) {
+            if (!constraint.satisfied(assignment)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * 回溯：在搜索中一旦碰到障碍，就回到碰到障碍之前最后一次做出判断的已知点
      * 回溯搜索是一种递归式深度优先搜索
@@ -62,30 +127,250 @@ public class CSP<V, D> {
      * @return
      */
     public Map<V, D> backtrackingSearch(Map<V, D> assignment) {
-        // 找到满足条件的赋值
-        if (assignment.size() == variables.size()) {
-            return assignment;
+        // 搜索状态保存在CSPSolver中，按选定的策略迭代回溯，不再为每一层复制赋值
+        return new CSPSolver<>(this, variableSelector, valueOrderer, propagation).solve(assignment);
+    }
+
+    public Map<V, D> backtrackingSearch() {
+        return backtrackingSearch(new HashMap<>());
+    }
+
+    /**
+     * 冲突导向回溯搜索：失败时直接跳回造成冲突的变量，并记录nogood避免重复同样的失败，参见BackjumpingSolver
+     * 适合冲突集中在少数变量上的过约束问题，按时间顺序回溯会在无关变量的每个组合下重复探索同一个失败
+     *
+     * @param nogoodCapacity 最多保存的nogood个数，超出时淘汰最近最少使用的
+     * @return 找不到解时返回null
+     */
+    public Map<V, D> backjumpingSearch(Map<V, D> assignment, int nogoodCapacity) {
+        return new BackjumpingSolver<>(this, nogoodCapacity).solve(assignment);
+    }
+
+    public Map<V, D> backjumpingSearch() {
+        return backjumpingSearch(new HashMap<>(), 10_000);
+    }
+
+    /**
+     * 按回溯搜索的顺序惰性地枚举所有的解，每次调用next时才继续搜索，不会收集已经找到的解
+     * 每个解都是新的Map，调用方不保留它们时内存占用与解的个数无关
+     */
+    public Iterator<Map<V, D>> solutions(Map<V, D> assignment) {
+        CSPSolver<V, D> solver = new CSPSolver<>(this, variableSelector, valueOrderer, propagation);
+        solver.start(assignment);
+        return new Iterator<>() {
+            // null表示还没有搜索下一个解
+            private Boolean hasNext;
+
+            @Override
+            public boolean hasNext() {
+                if (hasNext == null) {
+                    hasNext = solver.nextSolution();
+                }
+                return hasNext;
+            }
+
+            @Override
+            public Map<V, D> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                hasNext = null;
+                return new HashMap<>(solver.getAssignment());
+            }
+        };
+    }
+
+    public Stream<Map<V, D>> solutionStream() {
+        Iterator<Map<V, D>> iterator = solutions(new HashMap<>());
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator,
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * 统计解的个数，只在原地推进同一个赋值，不为任何解创建Map
+     */
+    public long countSolutions(Map<V, D> assignment) {
+        CSPSolver<V, D> solver = new CSPSolver<>(this, variableSelector, valueOrderer, propagation);
+        solver.start(assignment);
+        long count = 0;
+        while (solver.nextSolution()) {
+            count++;
         }
+        return count;
+    }
+
+    public long countSolutions() {
+        return countSolutions(new HashMap<>());
+    }
+
+    /**
+     * 并行回溯搜索：把搜索树的前splitDepth层划分为ForkJoin任务，由工作窃取平衡各个子树的负载，
+     * 任意一个任务找到解之后，其他任务在下一步检查时停止
+     * 约束会被多个线程同时读取，不能在satisfied中修改自身状态
+     *
+     * @param splitDepth 划分的层数，每一层的分支数为该变量相容值的个数
+     * @return 找不到解时返回null，多个子树都有解时返回哪一个取决于线程调度
+     */
+    public Map<V, D> parallelBacktrackingSearch(Map<V, D> assignment, int splitDepth, ForkJoinPool pool) {
+        return pool.invoke(new SplitTask(assignment, splitDepth, new AtomicBoolean()));
+    }
 
-        // 选出一个新变量并搜索其值域
-        V unassigned = variables.stream().filter(v -> !assignment.containsKey(v)).findFirst().get();
-        // 遍历该变量所有的可能分配到的值域
-        for (D value : domains.get(unassigned)) {
-            Map<V, D> localAssignment = new HashMap<>(assignment);
-            localAssignment.put(unassigned, value);
-            // 如果约束都满足
-            if (constraint(unassigned, localAssignment)) {
-                // 继续回溯搜索
-                Map<V, D> result = backtrackingSearch(localAssignment);
+    public Map<V, D> parallelBacktrackingSearch() {
+        return parallelBacktrackingSearch(new HashMap<>(), 2, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 搜索树的一个子树
+     */
+    private final class SplitTask extends RecursiveTask<Map<V, D>> {
+        private static final long serialVersionUID = 1L;
+
+        private final Map<V, D> assignment;
+        private final int depth;
+        private final AtomicBoolean found;
+
+        SplitTask(Map<V, D> assignment, int depth, AtomicBoolean found) {
+            this.assignment = assignment;
+            this.depth = depth;
+            this.found = found;
+        }
+
+        @Override
+        protected Map<V, D> compute() {
+            if (found.get()) {
+                return null;
+            }
+            CSPSolver<V, D> solver = new CSPSolver<>(CSP.this, variableSelector, valueOrderer, propagation);
+            if (depth == 0) {
+                solver.setStopCondition(found::get);
+                Map<V, D> result = solver.solve(assignment);
+                if (result != null) {
+                    found.set(true);
+                }
+                return result;
+            }
+            List<SplitTask> subtasks = new ArrayList<>();
+            for (Map<V, D> branch : solver.branches(assignment)) {
+                subtasks.add(new SplitTask(branch, depth - 1, found));
+            }
+            ForkJoinTask.invokeAll(subtasks);
+            for (SplitTask subtask : subtasks) {
+                Map<V, D> result = subtask.join();
                 if (result != null) {
                     return result;
                 }
             }
+            return null;
         }
-        return null;
     }
 
-    public Map<V, D> backtrackingSearch() {
-        return backtrackingSearch(new HashMap<>());
+    /**
+     * 组合（portfolio）搜索：同时运行size个完整的回溯搜索，第0个使用当前的策略，
+     * 其余的使用不同随机种子打乱值的顺序，不同的顺序在同一个问题上的耗时可能相差几个数量级，
+     * 最先结束的搜索给出结果（每个搜索都是完整的，最先结束的搜索没有找到解就说明问题无解），其他搜索随之停止
+     * 第0个搜索在调用线程中运行，其余的提交到pool：调用线程不会空等，即使它本身就是pool的工作线程，
+     * 也不会在其他搜索还排在同一个池的队列中时占住一个线程；调用线程的搜索结束时结果已经确定，之后只等待它被发布
+     *
+     * @param size 同时运行的搜索个数，至少为1
+     */
+    public Map<V, D> portfolioSearch(Map<V, D> assignment, int size, long seed, ForkJoinPool pool) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Portfolio size must be >= 1: " + size);
+        }
+        AtomicBoolean finished = new AtomicBoolean();
+        CompletableFuture<Map<V, D>> winner = new CompletableFuture<>();
+        List<Runnable> members = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            ValueOrderer<V, D> orderer = i == 0 ? valueOrderer : Heuristics.shuffled(seed + i);
+            members.add(() -> {
+                try {
+                    CSPSolver<V, D> solver = new CSPSolver<>(this, variableSelector, orderer, propagation);
+                    solver.setStopCondition(finished::get);
+                    Map<V, D> result = solver.solve(assignment);
+                    // 被停止的搜索也返回null，只有第一个结束的搜索可以给出结果
+                    if (finished.compareAndSet(false, true)) {
+                        winner.complete(result);
+                    }
+                } catch (RuntimeException e) {
+                    finished.set(true);
+                    winner.completeExceptionally(e);
+                }
+            });
+        }
+        for (int i = 1; i < size; i++) {
+            pool.execute(members.get(i));
+        }
+        members.get(0).run();
+        try {
+            return winner.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public Map<V, D> portfolioSearch(int size, long seed) {
+        return portfolioSearch(new HashMap<>(), size, seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 带预算的随机重启搜索
+     * 变量按dom/wdeg选择并随机打破平局，值的顺序随机打乱；第i次运行失败次数达到luby(i) * RESTART_UNIT之后
+     * 从头重新开始，约束权重在各次运行之间保留，重启之后会先处理之前反复失败的变量，
+     * 避免在早期的错误选择之下无休止地回溯
+     * 超出时间或者赋值次数的预算时返回搜索过程中出现过的最大的相容部分赋值
+     *
+     * @param timeBudgetMillis 最长运行时间（毫秒）
+     * @param nodeBudget       最多尝试的赋值次数
+     * @return 包含所有变量时是一个解；变量不全时是预算用完时最好的部分赋值；null表示问题无解
+     */
+    public Map<V, D> restartSearch(Map<V, D> assignment, long timeBudgetMillis, long nodeBudget, long seed) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeBudgetMillis);
+        CSPSolver<V, D> solver = new CSPSolver<>(this, Heuristics.domWdeg(seed), Heuristics.shuffled(seed),
+                propagation);
+        solver.trackBestPartial();
+        BooleanSupplier budgetExpired = () -> solver.nodeCount() >= nodeBudget || System.nanoTime() >= deadline;
+        for (int run = 1; ; run++) {
+            long cutoff = solver.failureCount() + luby(run) * RESTART_UNIT;
+            solver.setStopCondition(() -> solver.failureCount() >= cutoff || budgetExpired.getAsBoolean());
+            Map<V, D> solution = solver.solve(assignment);
+            if (solution != null) {
+                return solution;
+            }
+            if (!solver.wasStopped()) {
+                // 一次完整的运行结束，说明问题无解
+                return null;
+            }
+            if (budgetExpired.getAsBoolean()) {
+                return solver.bestPartial();
+            }
+            solver.reset();
+        }
+    }
+
+    public Map<V, D> restartSearch(long timeBudgetMillis, long nodeBudget) {
+        return restartSearch(new HashMap<>(), timeBudgetMillis, nodeBudget, 0);
+    }
+
+    /**
+     * Luby序列的第i项（从1开始）：1, 1, 2, 1, 1, 2, 4, 1, 1, 2, 1, 1, 2, 4, 8, ...
+     * 按它安排每次运行的失败次数，在不知道合适的截止值时与最优的固定截止值只差对数因子
+     */
+    static long luby(int i) {
+        while (true) {
+            int k = 1;
+            while ((1L << k) - 1 < i) {
+                k++;
+            }
+            if ((1L << k) - 1 == i) {
+                return 1L << (k - 1);
+            }
+            i -= (1 << (k - 1)) - 1;
+        }
     }
 }
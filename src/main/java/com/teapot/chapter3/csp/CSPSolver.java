@@ -0,0 +1,790 @@
+package com.teapot.chapter3.csp;
+
+import java.util.*;
+import java.util.function.BooleanSupplier;
+
+/**
+ * 一次回溯搜索的执行者
+ * CSP只描述问题（变量、值域和约束），搜索过程中的状态（当前赋值、当前域、约束权重等）都保存在CSPSolver中，
+ * 变量选择策略和值排序策略通过它读取搜索状态
+ * 约束传播（参见Propagation）把两个变量共享的约束投影到这两个变量上做检查：
+ * 在当前部分赋值的基础上临时为它们赋值，约束对部分赋值返回false即表示冲突
+ *
+ * @param <V> 变量
+ * @param <D> 值域
+ */
+public class CSPSolver<V, D> {
+    private final CSP<V, D> csp;
+    private final VariableSelector<V, D> variableSelector;
+    private final ValueOrderer<V, D> valueOrderer;
+    private final Propagation propagation;
+    private final Assignment<V, D> assignment;
+    // 与每个变量共享约束的其他变量
+    private final Map<V, Set<V>> neighbors = new HashMap<>();
+    // 每个变量涉及的增量约束，以及它们在本次搜索中的状态（同一个约束的状态在各个变量之间共享）
+    private final List<List<Constraint<V, D>>> incrementalConstraints = new ArrayList<>();
+    private final List<List<IncrementalConstraint.State<V, D>>> states = new ArrayList<>();
+    // 每个变量涉及的带有全局过滤算法的约束，以及每个约束对应的过滤器（就是约束本身）
+    private final List<List<Constraint<V, D>>> filteringConstraints = new ArrayList<>();
+    private final Map<Constraint<V, D>, FilteringConstraint<V, D>> filters = new IdentityHashMap<>();
+    // dom/wdeg使用的约束权重，约束每导致一次失败权重加1
+    private final Map<Constraint<V, D>, Integer> weights = new IdentityHashMap<>();
+
+    // 变量编号即变量在列表中的位置
+    private final List<V> variables;
+    // 当前域：removed[x][i]表示变量x的第i个域值已被剪除
+    private final List<List<D>> domains = new ArrayList<>();
+    private final boolean[][] removed;
+    private final int[] domainSizes;
+
+    // 弧(from, to)：from的值需要在to的域中找到支持，constraints为二者共享的约束
+    private final int[] arcFrom, arcTo;
+    private final List<List<Constraint<V, D>>> arcConstraints = new ArrayList<>();
+    // 指向每个变量的弧
+    private final int[][] arcsInto;
+    // AC-2001：lastSupport[arc][a]为from的第a个值上一次在to的域中找到的支持值下标
+    private final int[][] lastSupport;
+
+    // 剪除轨迹，依次存放(变量, 值下标)
+    private final Trail removals = new Trail();
+    // 支持值轨迹，依次存放(弧, 值下标, 旧的支持值下标)
+    private final Trail supports = new Trail();
+    // AC-3的弧队列，在各次传播之间复用
+    private final Deque<Integer> queue = new ArrayDeque<>();
+    private final boolean[] queued;
+    // 回溯栈，保存在字段中，找到一个解之后可以从原处继续搜索
+    private final Deque<Frame<V, D>> stack = new ArrayDeque<>();
+    // 初始赋值已经完整，它就是唯一的解
+    private boolean pendingComplete;
+    // 并行搜索中其他线程已经找到解时返回true
+    private BooleanSupplier stopCondition = () -> false;
+    // 上一次nextSolution是否因为满足停止条件而返回
+    private boolean stopped;
+    // 尝试过的赋值次数和其中失败的次数，供重启搜索计算预算
+    private long nodes, failures;
+    // 搜索过程中出现过的最大的相容部分赋值，为null时不记录
+    private Map<V, D> bestPartial;
+
+    /**
+     * 回溯栈中的一层：正在赋值的变量、它的候选值，以及进入这一层时各条轨迹的长度
+     */
+    private static final class Frame<V, D> {
+        final V variable;
+        final List<D> values;
+        final int assignmentMark, removalMark, supportMark;
+        int next;
+
+        Frame(V variable, List<D> values, int assignmentMark, int removalMark, int supportMark) {
+            this.variable = variable;
+            this.values = values;
+            this.assignmentMark = assignmentMark;
+            this.removalMark = removalMark;
+            this.supportMark = supportMark;
+        }
+    }
+
+    /**
+     * 可增长的int栈
+     */
+    private static final class Trail {
+        private int[] data = new int[64];
+        private int size;
+
+        void push(int value) {
+            if (size == data.length) {
+                data = Arrays.copyOf(data, size * 2);
+            }
+            data[size++] = value;
+        }
+
+        int pop() {
+            return data[--size];
+        }
+
+        int size() {
+            return size;
+        }
+
+        int get(int index) {
+            return data[index];
+        }
+    }
+
+    public CSPSolver(CSP<V, D> csp, VariableSelector<V, D> variableSelector, ValueOrderer<V, D> valueOrderer) {
+        this(csp, variableSelector, valueOrderer, Propagation.NONE);
+    }
+
+    public CSPSolver(CSP<V, D> csp, VariableSelector<V, D> variableSelector, ValueOrderer<V, D> valueOrderer,
+                     Propagation propagation) {
+        this.csp = csp;
+        this.variableSelector = variableSelector;
+        this.valueOrderer = valueOrderer;
+        this.propagation = propagation;
+        variables = csp.getVariables();
+        assignment = new Assignment<>(variables);
+        int n = variables.size();
+        removed = new boolean[n][];
+        domainSizes = new int[n];
+        for (int x = 0; x < n; x++) {
+            V variable = variables.get(x);
+            List<D> domain = csp.getDomain(variable);
+            domains.add(domain);
+            removed[x] = new boolean[domain.size()];
+            domainSizes[x] = domain.size();
+        }
+
+        Map<Constraint<V, D>, IncrementalConstraint.State<V, D>> created = new IdentityHashMap<>();
+        for (V variable : variables) {
+            List<Constraint<V, D>> incremental = new ArrayList<>();
+            List<IncrementalConstraint.State<V, D>> variableStates = new ArrayList<>();
+            for (Constraint<V, D> constraint : csp.getConstraints(variable)) {
+                IncrementalConstraint<V, D> typed = asIncremental(constraint);
+                if (typed != null) {
+                    incremental.add(constraint);
+                    IncrementalConstraint.State<V, D> state = created.get(constraint);
+                    if (state == null) {
+                        state = typed.newState();
+                        created.put(constraint, state);
+                    }
+                    variableStates.add(state);
+                }
+            }
+            incrementalConstraints.add(incremental);
+            states.add(variableStates);
+            List<Constraint<V, D>> filtering = new ArrayList<>();
+            for (Constraint<V, D> constraint : csp.getConstraints(variable)) {
+                FilteringConstraint<V, D> filter = asFiltering(constraint);
+                if (filter != null) {
+                    filtering.add(constraint);
+                    filters.put(constraint, filter);
+                }
+            }
+            filteringConstraints.add(filtering);
+        }
+
+        List<Integer> from = new ArrayList<>();
+        List<Integer> to = new ArrayList<>();
+        List<List<Integer>> into = new ArrayList<>();
+        for (int x = 0; x < n; x++) {
+            into.add(new ArrayList<>());
+        }
+        for (int x = 0; x < n; x++) {
+            V variable = variables.get(x);
+            // 按邻居分组共享的约束，每个邻居对应一条弧
+            Map<V, List<Constraint<V, D>>> shared = new LinkedHashMap<>();
+            for (Constraint<V, D> constraint : csp.getConstraints(variable)) {
+                for (V other : constraint.variables) {
+                    if (!other.equals(variable)) {
+                        shared.computeIfAbsent(other, k -> new ArrayList<>()).add(constraint);
+                    }
+                }
+            }
+            neighbors.put(variable, Collections.unmodifiableSet(shared.keySet()));
+            for (Map.Entry<V, List<Constraint<V, D>>> entry : shared.entrySet()) {
+                int y = assignment.indexOf(entry.getKey());
+                into.get(y).add(from.size());
+                from.add(x);
+                to.add(y);
+                arcConstraints.add(entry.getValue());
+            }
+        }
+        arcFrom = from.stream().mapToInt(Integer::intValue).toArray();
+        arcTo = to.stream().mapToInt(Integer::intValue).toArray();
+        arcsInto = new int[n][];
+        for (int y = 0; y < n; y++) {
+            arcsInto[y] = into.get(y).stream().mapToInt(Integer::intValue).toArray();
+        }
+        queued = new boolean[arcFrom.length];
+        lastSupport = new int[propagation == Propagation.AC2001 ? arcFrom.length : 0][];
+        for (int arc = 0; arc < lastSupport.length; arc++) {
+            lastSupport[arc] = new int[domainSizes[arcFrom[arc]]];
+        }
+    }
+
+    /**
+     * IncrementalConstraint<V, D>是Constraint<V, D>的子类，这里的向下转型可以检查类型参数
+     *
+     * @return constraint不是增量约束时返回null
+     */
+    private static <V, D> IncrementalConstraint<V, D> asIncremental(Constraint<V, D> constraint) {
+        return constraint instanceof IncrementalConstraint ? (IncrementalConstraint<V, D>) constraint : null;
+    }
+
+    /**
+     * FilteringConstraint是接口，与Constraint没有继承关系，运行时无法检查类型参数；
+     * 过滤约束只读取和剪除自身变量的域，它的类型参数与所在的Constraint<V, D>相同，转型是安全的
+     *
+     * @return constraint没有过滤算法时返回null
+     */
+    @SuppressWarnings("unchecked")
+    private static <V, D> FilteringConstraint<V, D> asFiltering(Constraint<V, D> constraint) {
+        return constraint instanceof FilteringConstraint ? (FilteringConstraint<V, D>) constraint : null;
+    }
+
+    public CSP<V, D> getCSP() {
+        return csp;
+    }
+
+    /**
+     * 当前赋值的只读视图
+     */
+    public Map<V, D> getAssignment() {
+        return assignment.asMap();
+    }
+
+    public boolean isAssigned(V variable) {
+        return assignment.isAssigned(variable);
+    }
+
+    public List<V> unassignedVariables() {
+        List<V> unassigned = new ArrayList<>();
+        for (V variable : variables) {
+            if (!assignment.isAssigned(variable)) {
+                unassigned.add(variable);
+            }
+        }
+        return unassigned;
+    }
+
+    public Set<V> neighbors(V variable) {
+        return neighbors.get(variable);
+    }
+
+    /**
+     * 变量当前可以选择的值，即没有被约束传播剪除的值
+     */
+    public List<D> currentDomain(V variable) {
+        int x = assignment.indexOf(variable);
+        List<D> domain = domains.get(x);
+        if (domainSizes[x] == domain.size()) {
+            return domain;
+        }
+        List<D> values = new ArrayList<>(domainSizes[x]);
+        for (int i = 0; i < domain.size(); i++) {
+            if (!removed[x][i]) {
+                values.add(domain.get(i));
+            }
+        }
+        return values;
+    }
+
+    /**
+     * 在当前赋值下为未赋值的variable赋值value是否满足它的所有约束（不改变当前赋值）
+     */
+    public boolean isConsistent(V variable, D value) {
+        int mark = assignment.mark();
+        boolean consistent = assignAndCheck(assignment.indexOf(variable), value, null, false);
+        undoAssignments(mark);
+        return consistent;
+    }
+
+    /**
+     * 当前域中与已有赋值相容的值的个数，供MRV等策略使用
+     * 启用约束传播时，未赋值变量的当前域中只剩下相容的值，直接返回域的大小
+     */
+    public int remainingValues(V variable) {
+        if (propagation != Propagation.NONE && !assignment.isAssigned(variable)) {
+            return domainSizes[assignment.indexOf(variable)];
+        }
+        return countConsistent(variable);
+    }
+
+    /**
+     * 逐个检查当前域中的值，不依赖传播的结果，供临时赋值之后的试探使用
+     */
+    int countConsistent(V variable) {
+        int count = 0;
+        for (D value : currentDomain(variable)) {
+            if (isConsistent(variable, value)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 临时赋值，供需要试探的策略使用，调用方负责通过undo撤销到赋值之前的mark
+     */
+    int mark() {
+        return assignment.mark();
+    }
+
+    void assign(V variable, D value) {
+        assignAndCheck(assignment.indexOf(variable), value, null, false);
+    }
+
+    void undo(int mark) {
+        undoAssignments(mark);
+    }
+
+    /**
+     * 从未赋值变量的当前域中删除value，只能在FilteringConstraint.filter中调用，回溯时自动恢复
+     *
+     * @return 删除之后域不为空时返回true
+     */
+    public boolean removeValue(V variable, D value) {
+        int x = assignment.indexOf(variable);
+        int i = domains.get(x).indexOf(value);
+        if (i >= 0 && !removed[x][i]) {
+            remove(x, i);
+        }
+        return domainSizes[x] > 0;
+    }
+
+    /**
+     * 设置提前停止的条件，搜索的每一步都会检查，满足时solve返回null
+     */
+    void setStopCondition(BooleanSupplier stopCondition) {
+        this.stopCondition = stopCondition;
+    }
+
+    boolean wasStopped() {
+        return stopped;
+    }
+
+    long nodeCount() {
+        return nodes;
+    }
+
+    long failureCount() {
+        return failures;
+    }
+
+    /**
+     * 开始记录最大的相容部分赋值（赋值并传播成功之后赋值的变量最多的时刻）
+     */
+    void trackBestPartial() {
+        if (bestPartial == null) {
+            bestPartial = new HashMap<>();
+        }
+    }
+
+    Map<V, D> bestPartial() {
+        return bestPartial;
+    }
+
+    private void recordBestPartial() {
+        if (bestPartial != null && assignment.size() > bestPartial.size()) {
+            bestPartial = assignment.toMap();
+        }
+    }
+
+    /**
+     * 撤销所有的赋值和剪除，之后可以重新调用start，约束权重保留下来
+     */
+    void reset() {
+        stack.clear();
+        pendingComplete = false;
+        undoAssignments(0);
+        undo(0, 0);
+    }
+
+    public int weight(Constraint<V, D> constraint) {
+        return weights.getOrDefault(constraint, 1);
+    }
+
+    /**
+     * 为编号为id的变量赋值并检查约束
+     * 增量约束总是全部通知（即使已经发现冲突），撤销时才能对称地恢复它们的状态
+     *
+     * @param checked        需要检查的约束，为null时检查该变量的所有约束
+     * @param countFailures  是否为导致失败的约束增加权重
+     */
+    private boolean assignAndCheck(int id, D value, List<Constraint<V, D>> checked, boolean countFailures) {
+        V variable = variables.get(id);
+        assignment.set(id, value);
+        List<Constraint<V, D>> incremental = incrementalConstraints.get(id);
+        List<IncrementalConstraint.State<V, D>> variableStates = states.get(id);
+        boolean satisfied = true;
+        for (int k = 0; k < variableStates.size(); k++) {
+            if (!variableStates.get(k).assigned(variable, value) && satisfied
+                    && (checked == null || containsConstraint(checked, incremental.get(k)))) {
+                satisfied = false;
+                if (countFailures) {
+                    weights.put(incremental.get(k), weight(incremental.get(k)) + 1);
+                }
+            }
+        }
+        if (!satisfied) {
+            return false;
+        }
+        for (Constraint<V, D> constraint : checked == null ? csp.getConstraints(variable) : checked) {
+            if (!(constraint instanceof IncrementalConstraint) && !constraint.satisfied(assignment)) {
+                if (countFailures) {
+                    weights.put(constraint, weight(constraint) + 1);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static <V, D> boolean containsConstraint(List<Constraint<V, D>> constraints, Constraint<V, D> constraint) {
+        for (Constraint<V, D> c : constraints) {
+            if (c == constraint) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按与赋值相反的顺序撤销mark之后的赋值，并通知增量约束
+     */
+    private void undoAssignments(int mark) {
+        while (assignment.size() > mark) {
+            int id = assignment.assignedAt(assignment.size() - 1);
+            V variable = variables.get(id);
+            D value = assignment.valueOf(id);
+            List<IncrementalConstraint.State<V, D>> variableStates = states.get(id);
+            for (int k = variableStates.size() - 1; k >= 0; k--) {
+                variableStates.get(k).unassigned(variable, value);
+            }
+            assignment.undo(assignment.size() - 1);
+        }
+    }
+
+    private void remove(int x, int i) {
+        removed[x][i] = true;
+        domainSizes[x]--;
+        removals.push(x);
+        removals.push(i);
+    }
+
+    /**
+     * 把剪除的值和支持值恢复到进入某一层时的状态
+     */
+    private void undo(int removalMark, int supportMark) {
+        while (removals.size() > removalMark) {
+            int i = removals.pop();
+            int x = removals.pop();
+            removed[x][i] = false;
+            domainSizes[x]++;
+        }
+        while (supports.size() > supportMark) {
+            int old = supports.pop();
+            int a = supports.pop();
+            int arc = supports.pop();
+            lastSupport[arc][a] = old;
+        }
+    }
+
+    /**
+     * 在当前赋值的基础上临时为弧两端赋值，检查它们共享的约束
+     */
+    private boolean satisfiedOn(int arc, D a, D b) {
+        int mark = assignment.mark();
+        List<Constraint<V, D>> shared = arcConstraints.get(arc);
+        boolean satisfied = assignAndCheck(arcFrom[arc], a, shared, false)
+                && (b == null || assignAndCheck(arcTo[arc], b, shared, false));
+        undoAssignments(mark);
+        return satisfied;
+    }
+
+    /**
+     * 剪除from中在to的当前域（to已赋值时为它的值）里找不到支持的值
+     *
+     * @return from的域是否发生了变化
+     */
+    private boolean revise(int arc) {
+        int x = arcFrom[arc];
+        int y = arcTo[arc];
+        List<D> xDomain = domains.get(x);
+        List<D> yDomain = domains.get(y);
+        boolean yAssigned = assignment.hasValue(y);
+        boolean changed = false;
+        for (int a = 0; a < xDomain.size(); a++) {
+            if (removed[x][a]) {
+                continue;
+            }
+            D value = xDomain.get(a);
+            boolean supported;
+            if (yAssigned) {
+                supported = satisfiedOn(arc, value, null);
+            } else if (propagation == Propagation.AC2001) {
+                supported = findSupportFromLast(arc, a, value, yDomain);
+            } else {
+                supported = false;
+                for (int b = 0; b < yDomain.size() && !supported; b++) {
+                    supported = !removed[y][b] && satisfiedOn(arc, value, yDomain.get(b));
+                }
+            }
+            if (!supported) {
+                remove(x, a);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * AC-2001：先检查上一次的支持值，失效后只从它之后继续查找
+     * 之前的值在更小的部分赋值下已经不是支持值，赋值增多、域缩小后仍然不是
+     */
+    private boolean findSupportFromLast(int arc, int a, D value, List<D> yDomain) {
+        int y = arcTo[arc];
+        int last = lastSupport[arc][a];
+        if (!removed[y][last] && satisfiedOn(arc, value, yDomain.get(last))) {
+            return true;
+        }
+        for (int b = last + 1; b < yDomain.size(); b++) {
+            if (!removed[y][b] && satisfiedOn(arc, value, yDomain.get(b))) {
+                supports.push(arc);
+                supports.push(a);
+                supports.push(last);
+                lastSupport[arc][a] = b;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void wipeout(int arc) {
+        for (Constraint<V, D> constraint : arcConstraints.get(arc)) {
+            weights.put(constraint, weight(constraint) + 1);
+        }
+    }
+
+    /**
+     * 变量x刚被赋值之后的约束传播
+     *
+     * @return 某个未赋值变量的域为空时返回false
+     */
+    private boolean propagate(int x) {
+        if (propagation == Propagation.NONE) {
+            return true;
+        }
+        int mark = removals.size();
+        boolean arcConsistency = propagation == Propagation.AC3 || propagation == Propagation.AC2001;
+        // 前向检查
+        for (int arc : arcsInto[x]) {
+            int z = arcFrom[arc];
+            if (assignment.hasValue(z) || !revise(arc)) {
+                continue;
+            }
+            if (domainSizes[z] == 0) {
+                wipeout(arc);
+                return false;
+            }
+            if (arcConsistency) {
+                enqueueArcsInto(z);
+            }
+        }
+        if (arcConsistency && !arcConsistency()) {
+            return false;
+        }
+        return filter(filteringConstraints.get(x), mark);
+    }
+
+    /**
+     * 运行全局过滤算法直到不动点：域发生变化的变量所涉及的过滤约束（以及AC模式下指向它的弧）会被再次检查
+     *
+     * @param pending 需要运行的过滤约束
+     * @param scanned 剪除轨迹中已经处理过的位置，之后的剪除也会触发过滤
+     */
+    private boolean filter(Collection<Constraint<V, D>> pending, int scanned) {
+        boolean arcConsistency = propagation == Propagation.AC3 || propagation == Propagation.AC2001;
+        Set<Constraint<V, D>> pendingFilters = Collections.newSetFromMap(new IdentityHashMap<>());
+        pendingFilters.addAll(pending);
+        while (true) {
+            // 之前的传播所删除的值触发相关的过滤约束
+            for (; scanned < removals.size(); scanned += 2) {
+                pendingFilters.addAll(filteringConstraints.get(removals.get(scanned)));
+            }
+            Iterator<Constraint<V, D>> iterator = pendingFilters.iterator();
+            if (!iterator.hasNext()) {
+                return true;
+            }
+            Constraint<V, D> constraint = iterator.next();
+            iterator.remove();
+            int before = removals.size();
+            if (!filters.get(constraint).filter(this)) {
+                weights.put(constraint, weight(constraint) + 1);
+                return false;
+            }
+            if (arcConsistency && removals.size() > before) {
+                for (int k = before; k < removals.size(); k += 2) {
+                    enqueueArcsInto(removals.get(k));
+                }
+                if (!arcConsistency()) {
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * 把指向y的、两端都未赋值的弧加入队列
+     */
+    private void enqueueArcsInto(int y) {
+        for (int arc : arcsInto[y]) {
+            if (!queued[arc] && !assignment.hasValue(arcFrom[arc])) {
+                queued[arc] = true;
+                queue.add(arc);
+            }
+        }
+    }
+
+    /**
+     * AC-3主循环
+     */
+    private boolean arcConsistency() {
+        while (!queue.isEmpty()) {
+            int arc = queue.poll();
+            queued[arc] = false;
+            int x = arcFrom[arc];
+            if (assignment.hasValue(x) || !revise(arc)) {
+                continue;
+            }
+            if (domainSizes[x] == 0) {
+                wipeout(arc);
+                // 清空剩余的弧，留给下一次传播使用
+                while (!queue.isEmpty()) {
+                    queued[queue.poll()] = false;
+                }
+                return false;
+            }
+            enqueueArcsInto(x);
+        }
+        return true;
+    }
+
+    /**
+     * 搜索开始之前剪除与初始赋值以及一元约束冲突的值，AC模式下再建立初始的弧相容，最后运行所有的全局过滤约束
+     */
+    private boolean initialPropagation() {
+        for (int x = 0; x < variables.size(); x++) {
+            V variable = variables.get(x);
+            if (assignment.isAssigned(variable)) {
+                continue;
+            }
+            List<D> domain = domains.get(x);
+            for (int i = 0; i < domain.size(); i++) {
+                if (!isConsistent(variable, domain.get(i))) {
+                    remove(x, i);
+                }
+            }
+            if (domainSizes[x] == 0) {
+                return false;
+            }
+        }
+        if (propagation == Propagation.AC3 || propagation == Propagation.AC2001) {
+            for (int y = 0; y < variables.size(); y++) {
+                if (!assignment.hasValue(y)) {
+                    enqueueArcsInto(y);
+                }
+            }
+            if (!arcConsistency()) {
+                return false;
+            }
+        }
+        Set<Constraint<V, D>> all = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (List<Constraint<V, D>> filtering : filteringConstraints) {
+            all.addAll(filtering);
+        }
+        return filter(all, removals.size());
+    }
+
+    /**
+     * 在initial的基础上选出下一个变量，为它的每个相容值生成一个子问题，供并行搜索划分搜索树
+     *
+     * @return 按值的顺序排列的子问题，initial已经是完整赋值时只包含它自己
+     */
+    List<Map<V, D>> branches(Map<V, D> initial) {
+        for (Map.Entry<V, D> entry : initial.entrySet()) {
+            assignAndCheck(assignment.indexOf(entry.getKey()), entry.getValue(), null, false);
+        }
+        if (assignment.isComplete()) {
+            return List.of(assignment.toMap());
+        }
+        if (propagation != Propagation.NONE && !initialPropagation()) {
+            return List.of();
+        }
+        V variable = variableSelector.select(this);
+        List<Map<V, D>> branches = new ArrayList<>();
+        for (D value : valueOrderer.order(this, variable)) {
+            if (isConsistent(variable, value)) {
+                Map<V, D> branch = new HashMap<>(initial);
+                branch.put(variable, value);
+                branches.add(branch);
+            }
+        }
+        return branches;
+    }
+
+    /**
+     * 回溯搜索，使用显式的栈代替递归，每一层只在原地修改同一个赋值，回溯时按轨迹撤销赋值并恢复被剪除的值
+     *
+     * @param initial 已经确定的部分赋值
+     * @return 找不到解时返回null
+     */
+    public Map<V, D> solve(Map<V, D> initial) {
+        start(initial);
+        return nextSolution() ? assignment.toMap() : null;
+    }
+
+    /**
+     * 从initial开始一次新的搜索，之后通过nextSolution逐个取得解
+     */
+    public void start(Map<V, D> initial) {
+        for (Map.Entry<V, D> entry : initial.entrySet()) {
+            assignAndCheck(assignment.indexOf(entry.getKey()), entry.getValue(), null, false);
+        }
+        stack.clear();
+        recordBestPartial();
+        if (assignment.isComplete()) {
+            pendingComplete = true;
+            return;
+        }
+        if (propagation != Propagation.NONE && !initialPropagation()) {
+            return;
+        }
+        V first = variableSelector.select(this);
+        stack.push(new Frame<>(first, valueOrderer.order(this, first), assignment.mark(), removals.size(),
+                supports.size()));
+    }
+
+    /**
+     * 继续搜索下一个解，找到时它就是当前赋值（通过getAssignment读取，下一次调用之后失效），
+     * 下一次调用从这个解所在的位置继续回溯，因此可以不保存任何解地遍历所有解
+     *
+     * @return 没有更多的解或者满足停止条件时返回false
+     */
+    public boolean nextSolution() {
+        if (pendingComplete) {
+            pendingComplete = false;
+            return true;
+        }
+        stopped = false;
+        while (!stack.isEmpty()) {
+            if (stopCondition.getAsBoolean()) {
+                stopped = true;
+                return false;
+            }
+            Frame<V, D> frame = stack.peek();
+            // 撤销这一层上一次尝试的值以及它引起的剪除
+            undoAssignments(frame.assignmentMark);
+            undo(frame.removalMark, frame.supportMark);
+            if (frame.next == frame.values.size()) {
+                // 该变量所有的值都失败了，回溯
+                stack.pop();
+                continue;
+            }
+            D value = frame.values.get(frame.next++);
+            int id = assignment.indexOf(frame.variable);
+            nodes++;
+            if (!assignAndCheck(id, value, null, true) || !propagate(id)) {
+                failures++;
+                continue;
+            }
+            recordBestPartial();
+            if (assignment.isComplete()) {
+                return true;
+            }
+            V next = variableSelector.select(this);
+            stack.push(new Frame<>(next, valueOrderer.order(this, next), assignment.mark(), removals.size(),
+                    supports.size()));
+        }
+        return false;
+    }
+}
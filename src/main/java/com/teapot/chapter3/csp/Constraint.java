@@ -16,4 +16,12 @@ public abstract class Constraint<V, D> {
     }
 
     public abstract boolean satisfied(Map<V, D> assignment);
+
+    /**
+     * 回溯搜索调用的版本，默认通过不复制数据的Map视图委托给satisfied(Map)
+     * 子类可以重写它，直接按变量编号读取数组中的值
+     */
+    public boolean satisfied(Assignment<V, D> assignment) {
+        return satisfied(assignment.asMap());
+    }
 }
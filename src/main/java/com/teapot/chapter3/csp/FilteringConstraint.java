@@ -0,0 +1,15 @@
+package com.teapot.chapter3.csp;
+
+/**
+ * 带有全局过滤算法的约束
+ * 弧相容只能看到两个变量之间的投影，全局约束则可以把所有变量的当前域放在一起推理（例如AllDifferent的霍尔集合）
+ * 启用约束传播时，约束中的变量被赋值或者域发生变化之后，CSPSolver会调用filter，直到所有的域都不再变化
+ */
+public interface FilteringConstraint<V, D> {
+    /**
+     * 通过solver读取赋值和当前域，并调用solver.removeValue删除不可能出现在任何解中的值
+     *
+     * @return 约束已经无法满足时返回false
+     */
+    boolean filter(CSPSolver<V, D> solver);
+}
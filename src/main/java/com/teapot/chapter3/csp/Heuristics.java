@@ -0,0 +1,195 @@
+package com.teapot.chapter3.csp;
+
+import java.util.*;
+
+/**
+ * 常用的变量选择和值排序策略
+ * 1. staticOrder：按变量列表的顺序选择第一个未赋值的变量（原来的行为）
+ * 2. minimumRemainingValues（MRV）：选择剩余合法值最少的变量，最先暴露失败；平局时按度数打破
+ * 3. degree：选择与最多未赋值变量存在约束的变量
+ * 4. domWdeg：选择 剩余值个数 / 加权度数 最小的变量，约束每导致一次失败权重加1，搜索会逐渐聚焦到难以满足的约束上
+ *    domWdeg(seed)在比值相同的变量中随机选择，供随机重启搜索使用
+ * 5. leastConstrainingValue（LCV）：优先尝试为邻居变量排除最少值的域值
+ * 6. shuffled：按随机种子打乱域值的顺序
+ */
+public final class Heuristics {
+    private Heuristics() {
+    }
+
+    public static <V, D> VariableSelector<V, D> staticOrder() {
+        return solver -> {
+            for (V variable : solver.getCSP().getVariables()) {
+                if (!solver.isAssigned(variable)) {
+                    return variable;
+                }
+            }
+            throw new IllegalStateException("All variables are assigned");
+        };
+    }
+
+    public static <V, D> VariableSelector<V, D> minimumRemainingValues() {
+        return solver -> {
+            V best = null;
+            int bestRemaining = Integer.MAX_VALUE;
+            int bestDegree = -1;
+            for (V variable : solver.unassignedVariables()) {
+                int remaining = solver.remainingValues(variable);
+                // 已经没有合法值，立即选择它以便尽快回溯
+                if (remaining == 0) {
+                    return variable;
+                }
+                if (remaining < bestRemaining) {
+                    best = variable;
+                    bestRemaining = remaining;
+                    bestDegree = -1;
+                } else if (remaining == bestRemaining) {
+                    if (bestDegree < 0) {
+                        bestDegree = dynamicDegree(solver, best);
+                    }
+                    int degree = dynamicDegree(solver, variable);
+                    if (degree > bestDegree) {
+                        best = variable;
+                        bestDegree = degree;
+                    }
+                }
+            }
+            return best;
+        };
+    }
+
+    public static <V, D> VariableSelector<V, D> degree() {
+        return solver -> {
+            V best = null;
+            int bestDegree = -1;
+            for (V variable : solver.unassignedVariables()) {
+                int degree = dynamicDegree(solver, variable);
+                if (degree > bestDegree) {
+                    best = variable;
+                    bestDegree = degree;
+                }
+            }
+            return best;
+        };
+    }
+
+    public static <V, D> VariableSelector<V, D> domWdeg() {
+        return domWdeg((Random) null);
+    }
+
+    public static <V, D> VariableSelector<V, D> domWdeg(long seed) {
+        return domWdeg(new Random(seed));
+    }
+
+    /**
+     * @param random 为null时比值相同的变量中选择第一个，否则均匀随机地选择一个
+     */
+    private static <V, D> VariableSelector<V, D> domWdeg(Random random) {
+        return solver -> {
+            V best = null;
+            double bestRatio = Double.POSITIVE_INFINITY;
+            int ties = 0;
+            for (V variable : solver.unassignedVariables()) {
+                int remaining = solver.remainingValues(variable);
+                if (remaining == 0) {
+                    return variable;
+                }
+                int weightedDegree = 0;
+                for (Constraint<V, D> constraint : solver.getCSP().getConstraints(variable)) {
+                    if (hasOtherUnassigned(solver, constraint, variable)) {
+                        weightedDegree += solver.weight(constraint);
+                    }
+                }
+                double ratio = (double) remaining / Math.max(weightedDegree, 1);
+                if (ratio < bestRatio) {
+                    best = variable;
+                    bestRatio = ratio;
+                    ties = 1;
+                } else if (ratio == bestRatio && random != null && random.nextInt(++ties) == 0) {
+                    best = variable;
+                }
+            }
+            return best;
+        };
+    }
+
+    /**
+     * 按域中的顺序尝试所有值（原来的行为）
+     */
+    public static <V, D> ValueOrderer<V, D> domainOrder() {
+        return CSPSolver::currentDomain;
+    }
+
+    /**
+     * 随机打乱当前域，相同的种子产生相同的顺序，用于组合（portfolio）搜索中让各个线程走不同的路径
+     */
+    public static <V, D> ValueOrderer<V, D> shuffled(long seed) {
+        Random random = new Random(seed);
+        return (solver, variable) -> {
+            List<D> values = new ArrayList<>(solver.currentDomain(variable));
+            Collections.shuffle(values, random);
+            return values;
+        };
+    }
+
+    public static <V, D> ValueOrderer<V, D> leastConstrainingValue() {
+        return (solver, variable) -> {
+            List<D> domain = solver.currentDomain(variable);
+            Map<D, Integer> eliminated = new HashMap<>();
+            List<D> candidates = new ArrayList<>();
+            for (D value : domain) {
+                // 与已有赋值冲突的值一定失败，放在最后也不需要计算
+                if (!solver.isConsistent(variable, value)) {
+                    continue;
+                }
+                candidates.add(value);
+                eliminated.put(value, ruledOut(solver, variable, value));
+            }
+            candidates.sort(Comparator.comparingInt(eliminated::get));
+            return candidates;
+        };
+    }
+
+    /**
+     * 为variable赋值value后，未赋值的邻居变量总共失去的合法值个数
+     */
+    private static <V, D> int ruledOut(CSPSolver<V, D> solver, V variable, D value) {
+        int before = 0;
+        int after = 0;
+        List<V> neighbors = new ArrayList<>();
+        for (V neighbor : solver.neighbors(variable)) {
+            if (!solver.isAssigned(neighbor)) {
+                neighbors.add(neighbor);
+                before += solver.countConsistent(neighbor);
+            }
+        }
+        int mark = solver.mark();
+        solver.assign(variable, value);
+        for (V neighbor : neighbors) {
+            after += solver.countConsistent(neighbor);
+        }
+        solver.undo(mark);
+        return before - after;
+    }
+
+    /**
+     * 与variable共享约束且尚未赋值的邻居个数
+     */
+    private static <V, D> int dynamicDegree(CSPSolver<V, D> solver, V variable) {
+        int degree = 0;
+        for (V neighbor : solver.neighbors(variable)) {
+            if (!solver.isAssigned(neighbor)) {
+                degree++;
+            }
+        }
+        return degree;
+    }
+
+    private static <V, D> boolean hasOtherUnassigned(CSPSolver<V, D> solver, Constraint<V, D> constraint, V variable) {
+        for (V other : constraint.variables) {
+            if (!other.equals(variable) && !solver.isAssigned(other)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,44 @@
+package com.teapot.chapter3.csp;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 增量约束
+ * 普通约束每次都要对整个赋值重新求值，增量约束则由回溯搜索逐个告知被赋值和被撤销的变量，
+ * 在State中维护计数器、部分和之类的内部状态，每次检查只需要O(1)
+ * 状态保存在CSPSolver为每次搜索创建的State中，约束对象本身仍然是无状态的，可以被多个线程同时使用
+ * satisfied(Map)仍然需要实现，供不经过CSPSolver的调用方使用
+ */
+public abstract class IncrementalConstraint<V, D> extends Constraint<V, D> {
+
+    public IncrementalConstraint(List<V> variables) {
+        super(variables);
+    }
+
+    /**
+     * 创建一个对应空赋值的状态
+     */
+    public abstract State<V, D> newState();
+
+    /**
+     * 一次搜索中约束的内部状态
+     * 对同一个变量，unassigned总是以与assigned相反的顺序调用，传入赋值时的值
+     */
+    public interface State<V, D> {
+        /**
+         * variable被赋值为value，更新状态
+         *
+         * @return 加上这个赋值之后约束是否仍然满足（返回false时状态也必须已经更新，之后会被unassigned撤销）
+         */
+        boolean assigned(V variable, D value);
+
+        /**
+         * 撤销variable的赋值
+         */
+        void unassigned(V variable, D value);
+    }
+
+    @Override
+    public abstract boolean satisfied(Map<V, D> assignment);
+}
@@ -0,0 +1,22 @@
+package com.teapot.chapter3.csp;
+
+/**
+ * 所有变量的值互不相同：一个变量被固定之后，从其他变量的值域中删除这个值
+ */
+public class IntAllDifferent extends IntConstraint {
+
+    public IntAllDifferent(int... variables) {
+        super(variables);
+    }
+
+    @Override
+    public boolean propagate(IntDomains domains, int variable) {
+        int value = domains.value(variable);
+        for (int other : variables) {
+            if (other != variable && !domains.remove(other, value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,209 @@
+package com.teapot.chapter3.csp;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 值为小整数的约束满足问题
+ * 变量是0 ~ variableCount-1的编号，值是0 ~ domainSize-1的整数，值域保存为位集合（参见IntDomains）
+ * 与CSP相比：
+ * 1. 约束在变量被固定时直接从其他变量的值域中删除值（前向检查），变量选择使用MRV，域大小就是位计数
+ * 2. 回溯时按轨迹写回被修改的long，搜索过程中除了返回结果之外不分配对象
+ * n皇后问题（行号）和字谜问题（数字）都是这种形式
+ */
+public class IntCSP {
+    private final int variableCount;
+    private final IntDomains domains;
+    // 每个变量涉及的约束
+    private final List<List<IntConstraint>> constraintsOf = new ArrayList<>();
+
+    // 搜索状态
+    private final boolean[] fixed;
+    // 已固定的变量，按固定的顺序排列，同时作为传播队列
+    private final int[] fixedStack;
+    private int fixedCount;
+
+    public IntCSP(int variableCount, int domainSize) {
+        this.variableCount = variableCount;
+        domains = new IntDomains(variableCount, domainSize);
+        for (int x = 0; x < variableCount; x++) {
+            constraintsOf.add(new ArrayList<>());
+        }
+        fixed = new boolean[variableCount];
+        fixedStack = new int[variableCount];
+    }
+
+    public int getVariableCount() {
+        return variableCount;
+    }
+
+    public void addConstraint(IntConstraint constraint) {
+        for (int variable : constraint.variables) {
+            if (variable < 0 || variable >= variableCount) {
+                throw new IllegalArgumentException("Variable in constraint not in CSP");
+            }
+            constraintsOf.get(variable).add(constraint);
+        }
+    }
+
+    /**
+     * 把变量的初始值域缩小到[low, high]
+     */
+    public void restrict(int variable, int low, int high) {
+        domains.restrict(variable, low, high);
+    }
+
+    /**
+     * 从变量的初始值域中删除一个值
+     */
+    public void remove(int variable, int value) {
+        domains.remove(variable, value);
+    }
+
+    /**
+     * 找到一个解
+     *
+     * @return 每个变量的值，找不到解时返回null
+     */
+    public int[] solve() {
+        int[] solution = new int[variableCount];
+        return search(solution) > 0 ? solution : null;
+    }
+
+    /**
+     * 统计解的个数，不为任何解分配对象
+     */
+    public long countSolutions() {
+        return search(null);
+    }
+
+    /**
+     * 把变量标记为已固定并加入传播队列
+     */
+    private void markFixed(int x) {
+        fixed[x] = true;
+        fixedStack[fixedCount++] = x;
+    }
+
+    /**
+     * 依次处理从head开始的已固定变量，约束新固定的变量也会加入队列
+     */
+    private boolean propagate(int head) {
+        while (head < fixedCount) {
+            int x = fixedStack[head++];
+            for (IntConstraint constraint : constraintsOf.get(x)) {
+                if (!constraint.propagate(domains, x)) {
+                    return false;
+                }
+                for (int y : constraint.variables) {
+                    if (!fixed[y] && domains.isFixed(y)) {
+                        markFixed(y);
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * MRV：选择值域最小的未固定变量
+     */
+    private int selectVariable() {
+        int best = -1;
+        int bestSize = Integer.MAX_VALUE;
+        for (int x = 0; x < variableCount; x++) {
+            if (!fixed[x] && domains.size(x) < bestSize) {
+                best = x;
+                bestSize = domains.size(x);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * 迭代回溯搜索，结束后恢复初始值域，因此可以重复调用
+     *
+     * @param solution 不为null时在找到第一个解后停止并写入其中，为null时统计所有的解
+     * @return 找到的解的个数
+     */
+    private long search(int[] solution) {
+        int rootMark = domains.mark();
+        fixedCount = 0;
+        try {
+            for (int x = 0; x < variableCount; x++) {
+                if (domains.size(x) == 0) {
+                    return 0;
+                }
+                if (domains.isFixed(x)) {
+                    markFixed(x);
+                }
+            }
+            if (!propagate(0)) {
+                return 0;
+            }
+            if (fixedCount == variableCount) {
+                return found(solution);
+            }
+
+            // 每一层的变量、下一个要尝试的值、进入这一层时的轨迹位置和已固定变量的个数
+            int[] variables = new int[variableCount];
+            int[] nextValues = new int[variableCount];
+            int[] domainMarks = new int[variableCount];
+            int[] fixedMarks = new int[variableCount];
+            int depth = 0;
+            variables[0] = selectVariable();
+            domainMarks[0] = domains.mark();
+            fixedMarks[0] = fixedCount;
+            depth++;
+
+            long count = 0;
+            while (depth > 0) {
+                int level = depth - 1;
+                int x = variables[level];
+                // 撤销这一层上一次尝试的值以及它引起的传播
+                domains.undo(domainMarks[level]);
+                while (fixedCount > fixedMarks[level]) {
+                    fixed[fixedStack[--fixedCount]] = false;
+                }
+                int value = domains.next(x, nextValues[level]);
+                if (value < 0) {
+                    depth--;
+                    continue;
+                }
+                nextValues[level] = value + 1;
+                domains.fix(x, value);
+                markFixed(x);
+                if (!propagate(fixedCount - 1)) {
+                    continue;
+                }
+                if (fixedCount == variableCount) {
+                    count += found(solution);
+                    if (solution != null) {
+                        return count;
+                    }
+                    continue;
+                }
+                variables[depth] = selectVariable();
+                nextValues[depth] = 0;
+                domainMarks[depth] = domains.mark();
+                fixedMarks[depth] = fixedCount;
+                depth++;
+            }
+            return count;
+        } finally {
+            domains.undo(rootMark);
+            while (fixedCount > 0) {
+                fixed[fixedStack[--fixedCount]] = false;
+            }
+        }
+    }
+
+    private int found(int[] solution) {
+        if (solution != null) {
+            for (int x = 0; x < variableCount; x++) {
+                solution[x] = domains.value(x);
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,21 @@
+package com.teapot.chapter3.csp;
+
+/**
+ * IntCSP中的约束
+ * 变量用0 ~ variableCount-1的编号表示，约束不检查完整的赋值，而是在变量被固定时直接修改其他变量的位集合值域
+ */
+public abstract class IntConstraint {
+    protected final int[] variables;
+
+    public IntConstraint(int... variables) {
+        this.variables = variables;
+    }
+
+    /**
+     * 变量variable刚被固定（值为domains.value(variable)），从其他变量的值域中删除不再可能的值
+     * 当约束的所有变量都被固定时，返回true必须意味着约束已经满足
+     *
+     * @return 某个值域变为空时返回false
+     */
+    public abstract boolean propagate(IntDomains domains, int variable);
+}
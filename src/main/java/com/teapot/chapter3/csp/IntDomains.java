@@ -0,0 +1,194 @@
+package com.teapot.chapter3.csp;
+
+import java.util.Arrays;
+
+/**
+ * IntCSP使用的位集合值域
+ * 每个变量的值域是0 ~ domainSize-1的子集，用连续的若干个long表示（64个值以内只占一个long），
+ * 删除值、缩小到区间、固定为单个值都是掩码运算
+ * 每次修改之前把旧的long记录到轨迹上，回溯时按相反的顺序写回，搜索过程中不分配对象
+ */
+public final class IntDomains {
+    private final int variableCount;
+    private final int domainSize;
+    // 每个变量占用的long个数
+    private final int words;
+    private final long[] bits;
+    private final int[] sizes;
+
+    // 轨迹：被修改的long的下标以及修改之前的值
+    private int[] trailIndexes = new int[256];
+    private long[] trailWords = new long[256];
+    private int trailSize;
+
+    IntDomains(int variableCount, int domainSize) {
+        this.variableCount = variableCount;
+        this.domainSize = domainSize;
+        words = (domainSize + Long.SIZE - 1) / Long.SIZE;
+        bits = new long[variableCount * words];
+        sizes = new int[variableCount];
+        for (int x = 0; x < variableCount; x++) {
+            for (int w = 0; w < words; w++) {
+                int remaining = domainSize - w * Long.SIZE;
+                bits[x * words + w] = remaining >= Long.SIZE ? -1L : (1L << remaining) - 1;
+            }
+            sizes[x] = domainSize;
+        }
+    }
+
+    public int variableCount() {
+        return variableCount;
+    }
+
+    public int domainSize() {
+        return domainSize;
+    }
+
+    public int size(int x) {
+        return sizes[x];
+    }
+
+    public boolean isFixed(int x) {
+        return sizes[x] == 1;
+    }
+
+    public boolean contains(int x, int value) {
+        if (value < 0 || value >= domainSize) {
+            return false;
+        }
+        return (bits[x * words + (value >>> 6)] & (1L << value)) != 0;
+    }
+
+    /**
+     * 最小值，值域为空时返回-1
+     */
+    public int min(int x) {
+        return next(x, 0);
+    }
+
+    /**
+     * 最大值，值域为空时返回-1
+     */
+    public int max(int x) {
+        for (int w = words - 1; w >= 0; w--) {
+            long word = bits[x * words + w];
+            if (word != 0) {
+                return w * Long.SIZE + Long.SIZE - 1 - Long.numberOfLeadingZeros(word);
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 不小于from的最小值，不存在时返回-1，可以用来遍历值域：
+     * for (int v = domains.min(x); v >= 0; v = domains.next(x, v + 1))
+     */
+    public int next(int x, int from) {
+        if (from < 0) {
+            from = 0;
+        }
+        if (from >= domainSize) {
+            return -1;
+        }
+        int w = from >>> 6;
+        long word = bits[x * words + w] & (-1L << from);
+        while (true) {
+            if (word != 0) {
+                return w * Long.SIZE + Long.numberOfTrailingZeros(word);
+            }
+            if (++w == words) {
+                return -1;
+            }
+            word = bits[x * words + w];
+        }
+    }
+
+    /**
+     * 固定变量的值，只在isFixed时有意义
+     */
+    public int value(int x) {
+        return min(x);
+    }
+
+    private void write(int index, long word) {
+        long old = bits[index];
+        if (old == word) {
+            return;
+        }
+        if (trailSize == trailIndexes.length) {
+            trailIndexes = Arrays.copyOf(trailIndexes, trailSize * 2);
+            trailWords = Arrays.copyOf(trailWords, trailSize * 2);
+        }
+        trailIndexes[trailSize] = index;
+        trailWords[trailSize++] = old;
+        bits[index] = word;
+        sizes[index / words] += Long.bitCount(word) - Long.bitCount(old);
+    }
+
+    /**
+     * 从x的值域中删除value
+     *
+     * @return 删除之后值域不为空时返回true
+     */
+    public boolean remove(int x, int value) {
+        if (value >= 0 && value < domainSize) {
+            int index = x * words + (value >>> 6);
+            write(index, bits[index] & ~(1L << value));
+        }
+        return sizes[x] > 0;
+    }
+
+    /**
+     * 把x的值域缩小到[low, high]
+     *
+     * @return 缩小之后值域不为空时返回true
+     */
+    public boolean restrict(int x, int low, int high) {
+        for (int w = 0; w < words; w++) {
+            int base = w * Long.SIZE;
+            long mask = -1L;
+            if (low > base) {
+                mask = low >= base + Long.SIZE ? 0 : mask & (-1L << (low - base));
+            }
+            if (high < base + Long.SIZE - 1) {
+                mask = high < base ? 0 : mask & (-1L >>> (Long.SIZE - 1 - (high - base)));
+            }
+            int index = x * words + w;
+            write(index, bits[index] & mask);
+        }
+        return sizes[x] > 0;
+    }
+
+    /**
+     * 把x固定为value
+     *
+     * @return value在x的值域中时返回true
+     */
+    public boolean fix(int x, int value) {
+        if (!contains(x, value)) {
+            restrict(x, 1, 0);
+            return false;
+        }
+        return restrict(x, value, value);
+    }
+
+    /**
+     * 当前轨迹的位置
+     */
+    public int mark() {
+        return trailSize;
+    }
+
+    /**
+     * 撤销mark之后的所有修改
+     */
+    public void undo(int mark) {
+        while (trailSize > mark) {
+            trailSize--;
+            int index = trailIndexes[trailSize];
+            long old = trailWords[trailSize];
+            sizes[index / words] += Long.bitCount(old) - Long.bitCount(bits[index]);
+            bits[index] = old;
+        }
+    }
+}
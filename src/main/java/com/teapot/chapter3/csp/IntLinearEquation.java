@@ -0,0 +1,73 @@
+package com.teapot.chapter3.csp;
+
+/**
+ * 线性等式 sum(coefficients[i] * variables[i]) == constant
+ * 每个变量的取值范围由其他变量的最小值和最大值推出（边界相容），所有变量都固定时等式必然成立
+ */
+public class IntLinearEquation extends IntConstraint {
+    private final int[] coefficients;
+    private final long constant;
+
+    public IntLinearEquation(int[] coefficients, int[] variables, long constant) {
+        super(variables);
+        if (coefficients.length != variables.length) {
+            throw new IllegalArgumentException("Every variable should have a coefficient");
+        }
+        this.coefficients = coefficients;
+        this.constant = constant;
+    }
+
+    @Override
+    public boolean propagate(IntDomains domains, int variable) {
+        // 缩小一个变量的范围可能让其他变量的范围也缩小，重复直到没有变化
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            long min = 0;
+            long max = 0;
+            for (int i = 0; i < variables.length; i++) {
+                long a = coefficients[i];
+                long low = domains.min(variables[i]);
+                long high = domains.max(variables[i]);
+                min += a > 0 ? a * low : a * high;
+                max += a > 0 ? a * high : a * low;
+            }
+            if (min > constant || max < constant) {
+                return false;
+            }
+            for (int i = 0; i < variables.length; i++) {
+                long a = coefficients[i];
+                if (a == 0) {
+                    continue;
+                }
+                int x = variables[i];
+                long low = domains.min(x);
+                long high = domains.max(x);
+                // 其他项之和的范围
+                long othersMin = min - (a > 0 ? a * low : a * high);
+                long othersMax = max - (a > 0 ? a * high : a * low);
+                // a * x 必须落在 [constant - othersMax, constant - othersMin] 中
+                long from = constant - othersMax;
+                long to = constant - othersMin;
+                long newLow = a > 0 ? ceilDiv(from, a) : ceilDiv(to, a);
+                long newHigh = a > 0 ? Math.floorDiv(to, a) : Math.floorDiv(from, a);
+                if (newLow > high || newHigh < low) {
+                    return false;
+                }
+                if (newLow > low || newHigh < high) {
+                    if (!domains.restrict(x, (int) Math.max(newLow, low), (int) Math.min(newHigh, high))) {
+                        return false;
+                    }
+                    changed = true;
+                    // 范围已经变化，重新计算总和的范围
+                    break;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+}
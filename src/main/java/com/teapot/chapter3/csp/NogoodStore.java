@@ -0,0 +1,126 @@
+package com.teapot.chapter3.csp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 有容量上限的nogood存储
+ * nogood是一组不可能扩展为解的赋值(变量编号, 值)，按其中的每一个赋值建立索引，
+ * 为变量赋值时只需要检查包含这个赋值的nogood
+ * 超出容量时淘汰最近最少使用（被学习或者导致剪枝）的nogood
+ */
+final class NogoodStore {
+    private final int capacity;
+    // 按访问顺序排列，最旧的在最前面
+    private final LinkedHashMap<Nogood, Nogood> nogoods;
+    // index.get(id).get(value)：包含赋值(id, value)的nogood
+    private final List<Map<Object, List<Nogood>>> index = new ArrayList<>();
+
+    /**
+     * 一个nogood，变量编号按升序排列
+     */
+    static final class Nogood {
+        final int[] ids;
+        final Object[] values;
+        private final int hash;
+
+        Nogood(int[] ids, Object[] values) {
+            this.ids = ids;
+            this.values = values;
+            hash = 31 * Arrays.hashCode(ids) + Arrays.hashCode(values);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Nogood)) {
+                return false;
+            }
+            Nogood other = (Nogood) o;
+            return Arrays.equals(ids, other.ids) && Arrays.equals(values, other.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    NogoodStore(int variableCount, int capacity) {
+        this.capacity = capacity;
+        nogoods = new LinkedHashMap<>(16, 0.75f, true);
+        for (int id = 0; id < variableCount; id++) {
+            index.add(new HashMap<>());
+        }
+    }
+
+    int size() {
+        return nogoods.size();
+    }
+
+    /**
+     * 记录一个nogood，已经存在时只更新它的使用时间
+     */
+    void add(Nogood nogood) {
+        if (capacity <= 0 || nogoods.get(nogood) != null) {
+            return;
+        }
+        if (nogoods.size() == capacity) {
+            Iterator<Nogood> eldest = nogoods.keySet().iterator();
+            unindex(eldest.next());
+            eldest.remove();
+        }
+        nogoods.put(nogood, nogood);
+        for (int k = 0; k < nogood.ids.length; k++) {
+            index.get(nogood.ids[k]).computeIfAbsent(nogood.values[k], v -> new ArrayList<>()).add(nogood);
+        }
+    }
+
+    private void unindex(Nogood nogood) {
+        for (int k = 0; k < nogood.ids.length; k++) {
+            Map<Object, List<Nogood>> byValue = index.get(nogood.ids[k]);
+            List<Nogood> list = byValue.get(nogood.values[k]);
+            list.remove(nogood);
+            if (list.isEmpty()) {
+                byValue.remove(nogood.values[k]);
+            }
+        }
+    }
+
+    /**
+     * 找到一个在当前赋值下被违反的、包含赋值(id, value)的nogood，并把它标记为最近使用
+     * 调用时id已经被赋值为value
+     *
+     * @return 不存在时返回null
+     */
+    Nogood violated(Assignment<?, ?> assignment, int id, Object value) {
+        List<Nogood> candidates = index.get(id).get(value);
+        if (candidates == null) {
+            return null;
+        }
+        for (Nogood nogood : candidates) {
+            if (matches(assignment, nogood)) {
+                nogoods.get(nogood);
+                return nogood;
+            }
+        }
+        return null;
+    }
+
+    private static boolean matches(Assignment<?, ?> assignment, Nogood nogood) {
+        for (int k = 0; k < nogood.ids.length; k++) {
+            Object current = assignment.valueOf(nogood.ids[k]);
+            if (current == null || !current.equals(nogood.values[k])) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
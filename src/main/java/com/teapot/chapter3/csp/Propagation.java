@@ -0,0 +1,24 @@
+package com.teapot.chapter3.csp;
+
+/**
+ * 回溯搜索中每次赋值之后的约束传播方式
+ * 传播只从未赋值变量的当前域中剪除值，回溯时通过轨迹（trail）恢复
+ */
+public enum Propagation {
+    /**
+     * 不传播，只在赋值之后检查约束（原来的行为）
+     */
+    NONE,
+    /**
+     * 前向检查：剪除与刚赋值的变量共享约束的未赋值变量中与当前赋值冲突的值，某个域为空时立即回溯
+     */
+    FORWARD_CHECKING,
+    /**
+     * 前向检查之后用AC-3维持未赋值变量之间的弧相容，域发生变化的变量重新检查所有指向它的弧
+     */
+    AC3,
+    /**
+     * 与AC3相同，但每个(弧, 值)记住上一次找到的支持值，之后只从这里向后查找，支持值随回溯一起恢复
+     */
+    AC2001
+}
@@ -0,0 +1,11 @@
+package com.teapot.chapter3.csp;
+
+import java.util.List;
+
+/**
+ * 值排序策略：决定为变量尝试域值的先后顺序
+ */
+@FunctionalInterface
+public interface ValueOrderer<V, D> {
+    List<D> order(CSPSolver<V, D> solver, V variable);
+}
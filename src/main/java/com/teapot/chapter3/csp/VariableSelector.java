@@ -0,0 +1,12 @@
+package com.teapot.chapter3.csp;
+
+/**
+ * 变量选择策略：决定回溯搜索下一步为哪个未赋值的变量赋值
+ */
+@FunctionalInterface
+public interface VariableSelector<V, D> {
+    /**
+     * 至少存在一个未赋值的变量时才会被调用
+     */
+    V select(CSPSolver<V, D> solver);
+}
@@ -0,0 +1,54 @@
+package com.teapot.chapter3.eight_queens;
+
+import com.teapot.chapter3.csp.IntCSP;
+import com.teapot.chapter3.csp.IntConstraint;
+import com.teapot.chapter3.csp.IntDomains;
+
+import java.util.Arrays;
+
+/**
+ * 位集合值域上的n皇后问题
+ * 变量i表示第i列皇后所在的行（从0开始），一个皇后被固定之后，
+ * 从其他每一列的值域中删除同一行以及两条对角线上的行
+ */
+public class IntQueensConstraint extends IntConstraint {
+
+    public IntQueensConstraint(int n) {
+        super(columns(n));
+    }
+
+    private static int[] columns(int n) {
+        int[] columns = new int[n];
+        for (int i = 0; i < n; i++) {
+            columns[i] = i;
+        }
+        return columns;
+    }
+
+    @Override
+    public boolean propagate(IntDomains domains, int column) {
+        int row = domains.value(column);
+        for (int other : variables) {
+            if (other == column) {
+                continue;
+            }
+            int distance = Math.abs(other - column);
+            if (!domains.remove(other, row) || !domains.remove(other, row + distance)
+                    || !domains.remove(other, row - distance)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void main(String[] args) {
+        IntCSP csp = new IntCSP(8, 8);
+        csp.addConstraint(new IntQueensConstraint(8));
+        System.out.println(Arrays.toString(csp.solve()));
+        for (int n = 4; n <= 12; n++) {
+            IntCSP queens = new IntCSP(n, n);
+            queens.addConstraint(new IntQueensConstraint(n));
+            System.out.println(n + " queens: " + queens.countSolutions() + " solutions");
+        }
+    }
+}
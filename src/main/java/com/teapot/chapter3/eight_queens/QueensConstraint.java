@@ -1,21 +1,27 @@
 package com.teapot.chapter3.eight_queens;
 
+import com.teapot.chapter3.csp.Assignment;
 import com.teapot.chapter3.csp.CSP;
-import com.teapot.chapter3.csp.Constraint;
+import com.teapot.chapter3.csp.IncrementalConstraint;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 八皇后问题
+ * 增量状态记录每一行和每条对角线上的皇后个数，检查一个新皇后只需要O(1)
  */
-public class QueensConstraint extends Constraint<Integer, Integer> {
+public class QueensConstraint extends IncrementalConstraint<Integer, Integer> {
     private final List<Integer> columns;
+    private final Set<Integer> columnSet;
 
     public QueensConstraint(List<Integer> columns) {
         super(columns);
         this.columns = columns;
+        columnSet = new HashSet<>(columns);
     }
 
     @Override
@@ -38,6 +44,120 @@ public class QueensConstraint extends Constraint<Integer, Integer> {
         return true;
     }
 
+    /**
+     * 只比较已赋值的皇后，不需要逐列查找，不属于columns的变量不参与比较
+     */
+    @Override
+    public boolean satisfied(Assignment<Integer, Integer> assignment) {
+        int size = assignment.size();
+        for (int i = 0; i < size; i++) {
+            int q1 = assignment.assignedAt(i);
+            int q1c = assignment.variable(q1);
+            if (!columnSet.contains(q1c)) {
+                continue;
+            }
+            int q1r = assignment.valueOf(q1);
+            for (int j = i + 1; j < size; j++) {
+                int q2 = assignment.assignedAt(j);
+                int q2c = assignment.variable(q2);
+                if (!columnSet.contains(q2c)) {
+                    continue;
+                }
+                int q2r = assignment.valueOf(q2);
+                if (q1r == q2r) {
+                    return false;
+                }
+                if (Math.abs(q1r - q2r) == Math.abs(q1c - q2c)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 列号和行号可以是任意整数，计数数组按实际出现的行号和对角线编号扩展
+     */
+    @Override
+    public State<Integer, Integer> newState() {
+        return new State<>() {
+            private final Counts rows = new Counts();
+            // 同一条对角线上 row - column 或 row + column 相同
+            private final Counts diagonals = new Counts();
+            private final Counts antiDiagonals = new Counts();
+            private int conflicts;
+
+            @Override
+            public boolean assigned(Integer column, Integer row) {
+                if (attacked(column, row)) {
+                    conflicts++;
+                }
+                rows.add(row, 1);
+                diagonals.add(row - column, 1);
+                antiDiagonals.add(row + column, 1);
+                return conflicts == 0;
+            }
+
+            @Override
+            public void unassigned(Integer column, Integer row) {
+                rows.add(row, -1);
+                diagonals.add(row - column, -1);
+                antiDiagonals.add(row + column, -1);
+                if (attacked(column, row)) {
+                    conflicts--;
+                }
+            }
+
+            private boolean attacked(int column, int row) {
+                return rows.get(row) > 0 || diagonals.get(row - column) > 0 || antiDiagonals.get(row + column) > 0;
+            }
+        };
+    }
+
+    /**
+     * 以整数为键的计数，counts[key - base]，键超出范围时扩展数组
+     */
+    private static final class Counts {
+        private int[] counts = new int[0];
+        private int base;
+
+        int get(int key) {
+            long index = (long) key - base;
+            return index >= 0 && index < counts.length ? counts[(int) index] : 0;
+        }
+
+        void add(int key, int delta) {
+            long index = (long) key - base;
+            if (index < 0 || index >= counts.length) {
+                grow(key);
+                index = (long) key - base;
+            }
+            counts[(int) index] += delta;
+        }
+
+        /**
+         * 扩展到包含key，至少扩大一倍，向key所在的一侧扩展
+         */
+        private void grow(int key) {
+            if (counts.length == 0) {
+                counts = new int[16];
+                base = key;
+                return;
+            }
+            long low = Math.min(base, key);
+            long high = Math.max((long) base + counts.length - 1, key);
+            long length = Math.max(high - low + 1, 2L * counts.length);
+            if (length > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Queen rows and columns span too wide a range: " + key);
+            }
+            int newBase = key < base ? (int) Math.max(high - length + 1, Integer.MIN_VALUE) : base;
+            int[] grown = new int[(int) length];
+            System.arraycopy(counts, 0, grown, base - newBase, counts.length);
+            counts = grown;
+            base = newBase;
+        }
+    }
+
     public static void main(String[] args) {
         List<Integer> columns = List.of(1, 2, 3, 4, 5, 6, 7, 8);
         Map<Integer, List<Integer>> rows = new HashMap<>();
@@ -52,5 +172,10 @@ public class QueensConstraint extends Constraint<Integer, Integer> {
         } else {
             System.out.println(solution);
         }
+        // 逐个枚举所有的解，只计数不保存
+        System.out.println("Number of solutions: " + csp.countSolutions());
+        // 最多运行100毫秒的随机重启搜索，预算用完时得到的是部分赋值
+        Map<Integer, Integer> bounded = csp.restartSearch(100, 1_000_000);
+        System.out.println(bounded.size() == columns.size() ? bounded : "Partial: " + bounded);
     }
 }
@@ -1,5 +1,6 @@
 package com.teapot.chapter3.graph_coloring;
 
+import com.teapot.chapter3.csp.Assignment;
 import com.teapot.chapter3.csp.CSP;
 import com.teapot.chapter3.csp.Constraint;
 
@@ -33,6 +34,13 @@ public class MapColoringConstraint extends Constraint<String, String> {
         return !assignment.get(place1).equals(assignment.get(place2));
     }
 
+    @Override
+    public boolean satisfied(Assignment<String, String> assignment) {
+        String color1 = assignment.get(place1);
+        String color2 = assignment.get(place2);
+        return color1 == null || color2 == null || !color1.equals(color2);
+    }
+
     public static void main(String[] args) {
         List<String> variables = List.of("Western Australia", "Northern Territory",
                 "South Australia", "Queensland", "New South Wales", "Victoria", "Tasmania");
@@ -57,5 +65,7 @@ public class MapColoringConstraint extends Constraint<String, String> {
         } else {
             System.out.println(solution);
         }
+        // 冲突导向回溯同样可以求解
+        System.out.println(csp.backjumpingSearch());
     }
 }
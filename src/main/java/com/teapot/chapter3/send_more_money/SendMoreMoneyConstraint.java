@@ -1,7 +1,11 @@
 package com.teapot.chapter3.send_more_money;
 
+import com.teapot.chapter3.csp.Assignment;
 import com.teapot.chapter3.csp.CSP;
-import com.teapot.chapter3.csp.Constraint;
+import com.teapot.chapter3.csp.IncrementalConstraint;
+import com.teapot.chapter3.csp.IntAllDifferent;
+import com.teapot.chapter3.csp.IntCSP;
+import com.teapot.chapter3.csp.IntLinearEquation;
 
 import java.util.HashMap;
 import java.util.HashSet;
@@ -13,7 +17,13 @@ import java.util.Map;
  * 字谜问题：找到字母背后所代表的数字，使得算式成立
  * SEND+MORE=MONEY
  */
-public class SendMoreMoneyConstraint extends Constraint<Character, Integer> {
+public class SendMoreMoneyConstraint extends IncrementalConstraint<Character, Integer> {
+    /**
+     * SEND + MORE - MONEY 按字母展开后的系数
+     */
+    private static final Map<Character, Integer> COEFFICIENTS = Map.of('S', 1000, 'E', 91, 'N', -90, 'D', 1,
+            'M', -9000, 'O', -900, 'R', 10, 'Y', -1);
+
     private final List<Character> letters;
 
     public SendMoreMoneyConstraint(List<Character> letters) {
@@ -44,6 +54,57 @@ public class SendMoreMoneyConstraint extends Constraint<Character, Integer> {
         return true;
     }
 
+    /**
+     * 数字只有0~9，用位掩码判断是否重复，不需要构建HashSet
+     */
+    @Override
+    public boolean satisfied(Assignment<Character, Integer> assignment) {
+        int used = 0;
+        for (int k = 0; k < assignment.size(); k++) {
+            int bit = 1 << assignment.valueOf(assignment.assignedAt(k));
+            if ((used & bit) != 0) {
+                return false;
+            }
+            used |= bit;
+        }
+        if (assignment.size() == letters.size()) {
+            return satisfied(assignment.asMap());
+        }
+        return true;
+    }
+
+    /**
+     * 增量状态：每个数字的使用次数和展开式的部分和，所有字母都赋值之后部分和为0即等式成立
+     */
+    @Override
+    public State<Character, Integer> newState() {
+        return new State<>() {
+            private final int[] digits = new int[10];
+            private int duplicates;
+            private int sum;
+            private int assigned;
+
+            @Override
+            public boolean assigned(Character letter, Integer digit) {
+                if (digits[digit]++ > 0) {
+                    duplicates++;
+                }
+                sum += COEFFICIENTS.get(letter) * digit;
+                assigned++;
+                return duplicates == 0 && (assigned < letters.size() || sum == 0);
+            }
+
+            @Override
+            public void unassigned(Character letter, Integer digit) {
+                if (--digits[digit] > 0) {
+                    duplicates--;
+                }
+                sum -= COEFFICIENTS.get(letter) * digit;
+                assigned--;
+            }
+        };
+    }
+
     public static void main(String[] args) {
         List<Character> letters = List.of('S', 'E', 'N', 'D', 'M', 'O', 'R', 'Y');
         Map<Character, List<Integer>> possibleDigits = new HashMap<>();
@@ -60,5 +121,22 @@ public class SendMoreMoneyConstraint extends Constraint<Character, Integer> {
         } else {
             System.out.println(solution);
         }
+
+        // 同一个问题的位集合版本：SEND + MORE - MONEY = 0 按字母展开系数，M同样固定为1
+        IntCSP intCsp = new IntCSP(letters.size(), 10);
+        int[] ids = {0, 1, 2, 3, 4, 5, 6, 7};
+        intCsp.addConstraint(new IntAllDifferent(ids));
+        intCsp.addConstraint(new IntLinearEquation(new int[]{1000, 91, -90, 1, -9000, -900, 10, -1}, ids, 0));
+        intCsp.restrict(letters.indexOf('M'), 1, 1);
+        int[] digits = intCsp.solve();
+        if (digits == null) {
+            System.out.println("No solution found!");
+        } else {
+            Map<Character, Integer> intSolution = new HashMap<>();
+            for (int i = 0; i < letters.size(); i++) {
+                intSolution.put(letters.get(i), digits[i]);
+            }
+            System.out.println(intSolution);
+        }
     }
 }
@@ -2,7 +2,9 @@ package com.teapot.chapter4.graph;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -14,6 +16,8 @@ import java.util.stream.Collectors;
 public abstract class Graph<V, E extends Edge> {
     // 顶点列表
     private final ArrayList<V> vertices = new ArrayList<>();
+    // 顶点 -> 索引，重复的顶点只记录第一次出现的位置，与vertices.indexOf一致
+    private final Map<V, Integer> indexes = new HashMap<>();
     // 邻接表（整数索引）
     protected ArrayList<ArrayList<E>> edges = new ArrayList<>();
 
@@ -22,7 +26,8 @@ public abstract class Graph<V, E extends Edge> {
 
     public Graph(List<V> vertices) {
         this.vertices.addAll(vertices);
-        for (V vertex : vertices) {
+        for (int i = 0; i < vertices.size(); i++) {
+            indexes.putIfAbsent(vertices.get(i), i);
             edges.add(new ArrayList<>());
         }
     }
@@ -37,6 +42,7 @@ public abstract class Graph<V, E extends Edge> {
 
     public int addVertex(V vertex) {
         vertices.add(vertex);
+        indexes.putIfAbsent(vertex, vertices.size() - 1);
         edges.add(new ArrayList<>());
         // 返回顶点索引
         return getVertexCount() - 1;
@@ -46,8 +52,12 @@ public abstract class Graph<V, E extends Edge> {
         return vertices.get(index);
     }
 
+    /**
+     * 顶点的索引，不存在时返回-1，通过哈希索引查找，O(1)
+     */
     public int indexOf(V vertex) {
-        return vertices.indexOf(vertex);
+        Integer index = indexes.get(vertex);
+        return index == null ? -1 : index;
     }
 
     /**
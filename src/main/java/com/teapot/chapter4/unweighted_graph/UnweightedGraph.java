@@ -76,5 +76,19 @@ public class UnweightedGraph<V> extends Graph<V, Edge> {
             System.out.println("Path from Boston to Miami:");
             System.out.println(path);
         }
+
+        // 目标已知且图是无向图，前驱函数与后继函数相同，可以使用双向广度优先搜索
+        GenericSearch.Node<String> bidirectionalResult = GenericSearch.bidirectionalBfs(
+                "Boston",
+                "Miami",
+                cityGraph::neighborsOf,
+                cityGraph::neighborsOf);
+        if (bidirectionalResult == null) {
+            System.out.println("No solution found using bidirectional breadth-first search!");
+        } else {
+            List<String> path = GenericSearch.nodeToPath(bidirectionalResult);
+            System.out.println("Path from Boston to Miami (bidirectional):");
+            System.out.println(path);
+        }
     }
 }
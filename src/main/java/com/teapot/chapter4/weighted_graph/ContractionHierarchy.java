@@ -0,0 +1,725 @@
+package com.teapot.chapter4.weighted_graph;
+
+import com.teapot.chapter2.IndexedDaryHeap;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * 收缩层次（Contraction Hierarchies）
+ * 预处理：按重要性从低到高逐个收缩顶点，收缩v时对每一对邻居u -> v -> w，
+ * 如果不经过v就找不到不长于它的路径（见证路径），就添加捷径u -> w，使剩余的图中距离保持不变
+ * 查询：从起点只沿着通往更高层顶点的边向前搜索，从终点只沿着来自更高层顶点的边向后搜索，
+ * 两个搜索都只访问很少的顶点，它们相遇处的最小距离和就是最短距离，捷径按收缩时记录的中间顶点递归展开为原来的路径
+ * 顶点用源图中的索引表示，可以以二进制格式保存到文件中，加载之后直接查询，不需要重新预处理
+ * 格式：4字节魔数"CHGR"，int类型的顶点数，之后依次是向上的边和向下的边，
+ * 各自是int[n + 1]偏移、int[]另一端顶点、double[]权重、int[]中间顶点（原始边为-1），全部为大端序
+ */
+public final class ContractionHierarchy {
+    private static final byte[] MAGIC = "CHGR".getBytes(StandardCharsets.US_ASCII);
+    // 见证搜索最多确定的顶点数，超过时认为没有见证路径，只会多添加捷径，不影响正确性
+    // 计算优先级时只需要估计捷径数，使用更小的上限
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+    private static final int SIMULATION_SETTLE_LIMIT = 50;
+
+    private final int vertexCount;
+    // 向上的边：upOffsets[v] ~ upOffsets[v + 1]是从v出发、指向更高层顶点的边
+    private final int[] upOffsets, upTargets, upMiddles;
+    private final double[] upWeights;
+    // 向下的边：downOffsets[v] ~ downOffsets[v + 1]是从更高层顶点指向v的边，downSources为起点
+    private final int[] downOffsets, downSources, downMiddles;
+    private final double[] downWeights;
+
+    private ContractionHierarchy(int vertexCount, int[] upOffsets, int[] upTargets, double[] upWeights,
+                                 int[] upMiddles, int[] downOffsets, int[] downSources, double[] downWeights,
+                                 int[] downMiddles) {
+        this.vertexCount = vertexCount;
+        this.upOffsets = upOffsets;
+        this.upTargets = upTargets;
+        this.upWeights = upWeights;
+        this.upMiddles = upMiddles;
+        this.downOffsets = downOffsets;
+        this.downSources = downSources;
+        this.downWeights = downWeights;
+        this.downMiddles = downMiddles;
+    }
+
+    /**
+     * 预处理，直接使用WeightedEdge的double权重，查询结果与WeightedGraph.shortestPath一致
+     */
+    public static ContractionHierarchy build(WeightedGraph<?> graph) {
+        Preprocessor preprocessor = new Preprocessor(graph.getVertexCount());
+        for (int u = 0; u < graph.getVertexCount(); u++) {
+            for (WeightedEdge edge : graph.edgesOf(u)) {
+                preprocessor.addEdge(u, edge.v, edge.weight);
+            }
+        }
+        return preprocessor.run();
+    }
+
+    /**
+     * 预处理，图可以是有向的（例如通过CsrGraph.Builder.addArc构建），边权重必须非负
+     */
+    public static ContractionHierarchy build(CsrGraph<?> graph) {
+        Preprocessor preprocessor = new Preprocessor(graph.getVertexCount());
+        for (int u = 0; u < graph.getVertexCount(); u++) {
+            for (int e = graph.firstEdge(u); e < graph.firstEdge(u) + graph.degree(u); e++) {
+                preprocessor.addEdge(u, graph.target(e), graph.weight(e));
+            }
+        }
+        return preprocessor.run();
+    }
+
+    public int getVertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * 捷径的条数
+     */
+    public int getShortcutCount() {
+        int count = 0;
+        for (int middle : upMiddles) {
+            if (middle >= 0) {
+                count++;
+            }
+        }
+        for (int middle : downMiddles) {
+            if (middle >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * source到target的最短距离，不可达时为Double.POSITIVE_INFINITY
+     * 单次查询的便捷方法，每次调用都创建新的查询对象（O(n)的数组），重复查询时使用newQuery
+     */
+    public double distance(int source, int target) {
+        return newQuery().distance(source, target);
+    }
+
+    /**
+     * source到target的最短路径上的顶点（捷径已经展开），不可达时为空数组
+     * 与distance相同，每次调用都创建新的查询对象
+     */
+    public int[] path(int source, int target) {
+        return newQuery().path(source, target);
+    }
+
+    /**
+     * 创建一个查询对象，它持有两个方向搜索的距离数组和堆，在各次查询之间复用，不是线程安全的，
+     * 多个线程同时查询时每个线程使用自己的查询对象
+     * 查询对象引用所在的ContractionHierarchy，不再使用之后不要继续持有它（例如放在线程池线程的ThreadLocal中），
+     * 否则整个层次都无法被回收
+     */
+    public Query newQuery() {
+        return new Query();
+    }
+
+    /**
+     * 双向向上搜索，每次查询之后只重置被访问过的顶点
+     */
+    public final class Query {
+        private final double[] forwardDistances = new double[vertexCount];
+        private final double[] backwardDistances = new double[vertexCount];
+        // 路径上的前一个（后一个）顶点以及连接它们的边的中间顶点
+        private final int[] forwardPredecessors = new int[vertexCount];
+        private final int[] forwardMiddles = new int[vertexCount];
+        private final int[] backwardSuccessors = new int[vertexCount];
+        private final int[] backwardMiddles = new int[vertexCount];
+        private final IndexedDaryHeap forwardHeap = new IndexedDaryHeap(4, vertexCount);
+        private final IndexedDaryHeap backwardHeap = new IndexedDaryHeap(4, vertexCount);
+        private final int[] touched = new int[2 * vertexCount];
+        private int touchedCount;
+        private int meeting;
+
+        private Query() {
+            Arrays.fill(forwardDistances, Double.POSITIVE_INFINITY);
+            Arrays.fill(backwardDistances, Double.POSITIVE_INFINITY);
+        }
+
+        public double distance(int source, int target) {
+            double best = search(source, target);
+            reset();
+            return best;
+        }
+
+        public int[] path(int source, int target) {
+            double best = search(source, target);
+            if (best == Double.POSITIVE_INFINITY) {
+                reset();
+                return new int[0];
+            }
+            IntList path = new IntList();
+            path.add(source);
+            // 前向部分：从相遇点沿前驱回到起点，再反过来展开
+            IntList forward = new IntList();
+            for (int v = meeting; v != source; v = forwardPredecessors[v]) {
+                forward.add(v);
+            }
+            int from = source;
+            for (int k = forward.size - 1; k >= 0; k--) {
+                int to = forward.values[k];
+                unpack(from, to, forwardMiddles[to], path);
+                from = to;
+            }
+            // 后向部分：从相遇点沿后继走到终点
+            for (int v = meeting; v != target; v = backwardSuccessors[v]) {
+                unpack(v, backwardSuccessors[v], backwardMiddles[v], path);
+            }
+            reset();
+            return Arrays.copyOf(path.values, path.size);
+        }
+
+        private double search(int source, int target) {
+            forwardDistances[source] = 0;
+            backwardDistances[target] = 0;
+            touched[touchedCount++] = source;
+            touched[touchedCount++] = target;
+            forwardHeap.insert(source, 0);
+            backwardHeap.insert(target, 0);
+            double best = Double.POSITIVE_INFINITY;
+            meeting = -1;
+            while (true) {
+                double forwardMin = forwardHeap.isEmpty() ? Double.POSITIVE_INFINITY
+                        : forwardHeap.keyOf(forwardHeap.peek());
+                double backwardMin = backwardHeap.isEmpty() ? Double.POSITIVE_INFINITY
+                        : backwardHeap.keyOf(backwardHeap.peek());
+                // 两个方向剩余的距离都不小于当前最优值时，不可能再找到更短的路径
+                if (Math.min(forwardMin, backwardMin) >= best) {
+                    break;
+                }
+                if (forwardMin <= backwardMin) {
+                    int u = forwardHeap.poll();
+                    if (forwardDistances[u] + backwardDistances[u] < best) {
+                        best = forwardDistances[u] + backwardDistances[u];
+                        meeting = u;
+                    }
+                    if (stalledForward(u)) {
+                        continue;
+                    }
+                    for (int e = upOffsets[u]; e < upOffsets[u + 1]; e++) {
+                        int v = upTargets[e];
+                        double distance = forwardDistances[u] + upWeights[e];
+                        if (distance < forwardDistances[v]) {
+                            if (forwardDistances[v] == Double.POSITIVE_INFINITY
+                                    && backwardDistances[v] == Double.POSITIVE_INFINITY) {
+                                touched[touchedCount++] = v;
+                            }
+                            forwardDistances[v] = distance;
+                            forwardPredecessors[v] = u;
+                            forwardMiddles[v] = upMiddles[e];
+                            forwardHeap.insertOrDecrease(v, distance);
+                        }
+                    }
+                } else {
+                    int u = backwardHeap.poll();
+                    if (forwardDistances[u] + backwardDistances[u] < best) {
+                        best = forwardDistances[u] + backwardDistances[u];
+                        meeting = u;
+                    }
+                    if (stalledBackward(u)) {
+                        continue;
+                    }
+                    for (int e = downOffsets[u]; e < downOffsets[u + 1]; e++) {
+                        int v = downSources[e];
+                        double distance = backwardDistances[u] + downWeights[e];
+                        if (distance < backwardDistances[v]) {
+                            if (forwardDistances[v] == Double.POSITIVE_INFINITY
+                                    && backwardDistances[v] == Double.POSITIVE_INFINITY) {
+                                touched[touchedCount++] = v;
+                            }
+                            backwardDistances[v] = distance;
+                            backwardSuccessors[v] = u;
+                            backwardMiddles[v] = downMiddles[e];
+                            backwardHeap.insertOrDecrease(v, distance);
+                        }
+                    }
+                }
+            }
+            return best;
+        }
+
+        /**
+         * 按需停滞（stall-on-demand）：如果经过某个更高层的顶点w到达u更近，u的距离不是最短距离，
+         * 从u继续向上搜索也不会得到最短路径，不需要展开它
+         */
+        private boolean stalledForward(int u) {
+            for (int e = downOffsets[u]; e < downOffsets[u + 1]; e++) {
+                if (forwardDistances[downSources[e]] + downWeights[e] < forwardDistances[u]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private boolean stalledBackward(int u) {
+            for (int e = upOffsets[u]; e < upOffsets[u + 1]; e++) {
+                if (backwardDistances[upTargets[e]] + upWeights[e] < backwardDistances[u]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void reset() {
+            for (int k = 0; k < touchedCount; k++) {
+                forwardDistances[touched[k]] = Double.POSITIVE_INFINITY;
+                backwardDistances[touched[k]] = Double.POSITIVE_INFINITY;
+            }
+            touchedCount = 0;
+            forwardHeap.clear();
+            backwardHeap.clear();
+        }
+    }
+
+    /**
+     * 把边from -> to展开为原始的边，依次加入除from之外的顶点
+     * 捷径from -> to经过middle，middle比两端都先被收缩：from -> middle是middle的向下的边，middle -> to是它向上的边
+     */
+    private void unpack(int from, int to, int middle, IntList path) {
+        if (middle < 0) {
+            path.add(to);
+            return;
+        }
+        int first = downEdge(middle, from);
+        int second = upEdge(middle, to);
+        // 文件被损坏或者手工修改时，捷径引用的边可能不存在
+        if (first < 0 || second < 0) {
+            throw new IllegalStateException("Shortcut " + from + " -> " + to + " via " + middle
+                    + " has no matching edges");
+        }
+        unpack(from, middle, downMiddles[first], path);
+        unpack(middle, to, upMiddles[second], path);
+    }
+
+    /**
+     * middle的向下的边中来自from的一条，不存在时为-1
+     */
+    private int downEdge(int middle, int from) {
+        for (int e = downOffsets[middle]; e < downOffsets[middle + 1]; e++) {
+            if (downSources[e] == from) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * middle的向上的边中指向to的一条，不存在时为-1
+     */
+    private int upEdge(int middle, int to) {
+        for (int e = upOffsets[middle]; e < upOffsets[middle + 1]; e++) {
+            if (upTargets[e] == to) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 检查每条捷径展开时需要的两条边都存在
+     */
+    private void checkShortcuts() {
+        for (int v = 0; v < vertexCount; v++) {
+            for (int e = upOffsets[v]; e < upOffsets[v + 1]; e++) {
+                checkShortcut(v, upTargets[e], upMiddles[e]);
+            }
+            for (int e = downOffsets[v]; e < downOffsets[v + 1]; e++) {
+                checkShortcut(downSources[e], v, downMiddles[e]);
+            }
+        }
+    }
+
+    private void checkShortcut(int from, int to, int middle) {
+        if (middle >= 0 && (downEdge(middle, from) < 0 || upEdge(middle, to) < 0)) {
+            throw new IllegalArgumentException("Shortcut " + from + " -> " + to + " via " + middle
+                    + " has no matching edges");
+        }
+    }
+
+    /**
+     * 以二进制格式保存
+     */
+    public void write(Path path) {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+            out.write(MAGIC);
+            out.writeInt(vertexCount);
+            writeEdges(out, upOffsets, upTargets, upWeights, upMiddles);
+            writeEdges(out, downOffsets, downSources, downWeights, downMiddles);
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private static void writeEdges(DataOutputStream out, int[] offsets, int[] ends, double[] weights,
+                                   int[] middles) throws IOException {
+        for (int offset : offsets) {
+            out.writeInt(offset);
+        }
+        for (int k = 0; k < ends.length; k++) {
+            out.writeInt(ends[k]);
+        }
+        for (int k = 0; k < ends.length; k++) {
+            out.writeDouble(weights[k]);
+        }
+        for (int k = 0; k < ends.length; k++) {
+            out.writeInt(middles[k]);
+        }
+    }
+
+    /**
+     * 读取write保存的文件
+     * 分配数组之前先按文件大小检查顶点数和边数，读入之后检查偏移单调、顶点编号在范围内、
+     * 每条捷径都有展开所需的两条边，格式不正确时抛出IllegalArgumentException
+     */
+    public static ContractionHierarchy read(Path path) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            long size = Files.size(path);
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC)) {
+                throw new IllegalArgumentException("Not a contraction hierarchy file: " + path);
+            }
+            int n = in.readInt();
+            // 魔数、顶点数以及两组偏移，每条边占4 + 8 + 4个字节
+            long expected = MAGIC.length + Integer.BYTES + 2L * Integer.BYTES * (n + 1L);
+            if (n < 0 || expected > size) {
+                throw new IllegalArgumentException("Invalid vertex count: " + n);
+            }
+            int[] upOffsets = readOffsets(in, n);
+            expected += 16L * upOffsets[n];
+            checkSize(expected, size);
+            int[] upTargets = readVertices(in, upOffsets[n], n, false);
+            double[] upWeights = readDoubles(in, upOffsets[n]);
+            int[] upMiddles = readVertices(in, upOffsets[n], n, true);
+            int[] downOffsets = readOffsets(in, n);
+            expected += 16L * downOffsets[n];
+            checkSize(expected, size);
+            int[] downSources = readVertices(in, downOffsets[n], n, false);
+            double[] downWeights = readDoubles(in, downOffsets[n]);
+            int[] downMiddles = readVertices(in, downOffsets[n], n, true);
+            ContractionHierarchy hierarchy = new ContractionHierarchy(n, upOffsets, upTargets, upWeights, upMiddles,
+                    downOffsets, downSources, downWeights, downMiddles);
+            hierarchy.checkShortcuts();
+            return hierarchy;
+        } catch (IOException e) {
+            throw new RuntimeException(e.getMessage(), e);
+        }
+    }
+
+    private static void checkSize(long expected, long size) {
+        if (expected > size) {
+            throw new IllegalArgumentException("Contraction hierarchy file is truncated");
+        }
+    }
+
+    /**
+     * 读取n + 1个偏移，第一个必须为0，之后不能减小
+     */
+    private static int[] readOffsets(DataInputStream in, int n) throws IOException {
+        int[] offsets = new int[n + 1];
+        for (int k = 0; k <= n; k++) {
+            offsets[k] = in.readInt();
+            if (k == 0 ? offsets[k] != 0 : offsets[k] < offsets[k - 1]) {
+                throw new IllegalArgumentException("Invalid edge offset " + offsets[k] + " at vertex " + k);
+            }
+        }
+        return offsets;
+    }
+
+    /**
+     * 读取length个顶点编号，必须在[0, n)中；middle为true时允许-1（原始边没有中间顶点）
+     */
+    private static int[] readVertices(DataInputStream in, int length, int n, boolean middle) throws IOException {
+        int[] values = new int[length];
+        int min = middle ? -1 : 0;
+        for (int k = 0; k < length; k++) {
+            values[k] = in.readInt();
+            if (values[k] < min || values[k] >= n) {
+                throw new IllegalArgumentException("Vertex index out of range: " + values[k]);
+            }
+        }
+        return values;
+    }
+
+    private static double[] readDoubles(DataInputStream in, int length) throws IOException {
+        double[] values = new double[length];
+        for (int k = 0; k < length; k++) {
+            values[k] = in.readDouble();
+        }
+        return values;
+    }
+
+    /**
+     * 可增长的int列表
+     */
+    private static final class IntList {
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+
+    /**
+     * 一个顶点在预处理过程中的出边或者入边，每个邻居只保留权重最小的一条
+     */
+    private static final class EdgeList {
+        int[] ends = new int[4];
+        double[] weights = new double[4];
+        int[] middles = new int[4];
+        int size;
+
+        /**
+         * 添加边，已经存在到同一个顶点的边时保留较短的一条
+         */
+        void put(int end, double weight, int middle) {
+            for (int k = 0; k < size; k++) {
+                if (ends[k] == end) {
+                    if (weight < weights[k]) {
+                        weights[k] = weight;
+                        middles[k] = middle;
+                    }
+                    return;
+                }
+            }
+            if (size == ends.length) {
+                ends = Arrays.copyOf(ends, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+                middles = Arrays.copyOf(middles, size * 2);
+            }
+            ends[size] = end;
+            weights[size] = weight;
+            middles[size] = middle;
+            size++;
+        }
+
+        void remove(int end) {
+            for (int k = 0; k < size; k++) {
+                if (ends[k] == end) {
+                    size--;
+                    ends[k] = ends[size];
+                    weights[k] = weights[size];
+                    middles[k] = middles[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 预处理过程
+     * 收缩顺序按优先级 = 需要添加的捷径数 - 删除的边数 + 已收缩的邻居数，优先收缩不重要的顶点，
+     * 取出优先级最小的顶点时重新计算，变大后不再是最小就放回堆中（延迟更新）
+     */
+    private static final class Preprocessor {
+        private final int n;
+        // 尚未收缩的部分图中的出边和入边，顶点被收缩之后它的列表就是它向上和向下的边
+        private final EdgeList[] out, in;
+        private final boolean[] contracted;
+        private final int[] contractedNeighbors;
+        // 顶点在层次中的深度：收缩时为所有邻居的深度下界加1，避免同一区域的顶点连续被收缩
+        private final int[] level;
+        // 见证搜索的暂存数组
+        private final double[] witnessDistances;
+        private final int[] witnessTouched;
+        private int witnessTouchedCount;
+        private final IndexedDaryHeap witnessHeap;
+
+        Preprocessor(int n) {
+            this.n = n;
+            out = new EdgeList[n];
+            in = new EdgeList[n];
+            for (int v = 0; v < n; v++) {
+                out[v] = new EdgeList();
+                in[v] = new EdgeList();
+            }
+            contracted = new boolean[n];
+            contractedNeighbors = new int[n];
+            level = new int[n];
+            witnessDistances = new double[n];
+            Arrays.fill(witnessDistances, Double.POSITIVE_INFINITY);
+            witnessTouched = new int[n];
+            witnessHeap = new IndexedDaryHeap(4, n);
+        }
+
+        /**
+         * 添加原始的边u -> v，忽略自环，平行边只保留较短的一条
+         */
+        void addEdge(int u, int v, double weight) {
+            if (u != v) {
+                out[u].put(v, weight, -1);
+                in[v].put(u, weight, -1);
+            }
+        }
+
+        ContractionHierarchy run() {
+            IndexedDaryHeap order = new IndexedDaryHeap(4, n);
+            for (int v = 0; v < n; v++) {
+                order.insert(v, priority(v));
+            }
+            while (!order.isEmpty()) {
+                int v = order.poll();
+                double updated = priority(v);
+                if (!order.isEmpty() && updated > order.keyOf(order.peek())) {
+                    order.insert(v, updated);
+                    continue;
+                }
+                contract(v, false);
+                contracted[v] = true;
+                for (int k = 0; k < out[v].size; k++) {
+                    in[out[v].ends[k]].remove(v);
+                }
+                for (int k = 0; k < in[v].size; k++) {
+                    out[in[v].ends[k]].remove(v);
+                }
+                // 邻居的优先级变小时立即更新，变大时留给出堆时的重新计算
+                for (EdgeList list : new EdgeList[]{out[v], in[v]}) {
+                    for (int k = 0; k < list.size; k++) {
+                        int neighbor = list.ends[k];
+                        // 无向图中同一个邻居同时出现在出边和入边中，只处理一次
+                        if (list == in[v] && contains(out[v], neighbor)) {
+                            continue;
+                        }
+                        contractedNeighbors[neighbor]++;
+                        level[neighbor] = Math.max(level[neighbor], level[v] + 1);
+                        if (order.contains(neighbor)) {
+                            order.decreaseKey(neighbor, priority(neighbor));
+                        }
+                    }
+                }
+            }
+            return assemble();
+        }
+
+        private double priority(int v) {
+            return 2 * (contract(v, true) - out[v].size - in[v].size) + contractedNeighbors[v] + level[v];
+        }
+
+        private static boolean contains(EdgeList list, int end) {
+            for (int k = 0; k < list.size; k++) {
+                if (list.ends[k] == end) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * 为v的每一对入边邻居u和出边邻居w检查是否需要捷径u -> w
+         *
+         * @param simulate 为true时只计数，不添加捷径
+         * @return 需要的捷径数
+         */
+        private int contract(int v, boolean simulate) {
+            int shortcuts = 0;
+            EdgeList incoming = in[v];
+            EdgeList outgoing = out[v];
+            double maxOut = 0;
+            for (int k = 0; k < outgoing.size; k++) {
+                maxOut = Math.max(maxOut, outgoing.weights[k]);
+            }
+            for (int i = 0; i < incoming.size; i++) {
+                int u = incoming.ends[i];
+                double toV = incoming.weights[i];
+                witnessSearch(u, v, toV + maxOut, simulate ? SIMULATION_SETTLE_LIMIT : WITNESS_SETTLE_LIMIT);
+                for (int j = 0; j < outgoing.size; j++) {
+                    int w = outgoing.ends[j];
+                    double viaV = toV + outgoing.weights[j];
+                    if (w == u || witnessDistances[w] <= viaV) {
+                        continue;
+                    }
+                    shortcuts++;
+                    if (!simulate) {
+                        out[u].put(w, viaV, v);
+                        in[w].put(u, viaV, v);
+                    }
+                }
+                resetWitness();
+            }
+            return shortcuts;
+        }
+
+        /**
+         * 在不经过excluded的剩余图中从source出发的有限Dijkstra，距离超过limit或者确定的顶点过多时停止
+         */
+        private void witnessSearch(int source, int excluded, double limit, int settleLimit) {
+            witnessDistances[source] = 0;
+            witnessTouched[witnessTouchedCount++] = source;
+            witnessHeap.insert(source, 0);
+            int settled = 0;
+            while (!witnessHeap.isEmpty() && settled < settleLimit) {
+                int u = witnessHeap.poll();
+                settled++;
+                if (witnessDistances[u] > limit) {
+                    break;
+                }
+                EdgeList edges = out[u];
+                for (int k = 0; k < edges.size; k++) {
+                    int w = edges.ends[k];
+                    if (w == excluded) {
+                        continue;
+                    }
+                    double distance = witnessDistances[u] + edges.weights[k];
+                    if (distance < witnessDistances[w]) {
+                        if (witnessDistances[w] == Double.POSITIVE_INFINITY) {
+                            witnessTouched[witnessTouchedCount++] = w;
+                        }
+                        witnessDistances[w] = distance;
+                        witnessHeap.insertOrDecrease(w, distance);
+                    }
+                }
+            }
+        }
+
+        private void resetWitness() {
+            for (int k = 0; k < witnessTouchedCount; k++) {
+                witnessDistances[witnessTouched[k]] = Double.POSITIVE_INFINITY;
+            }
+            witnessTouchedCount = 0;
+            witnessHeap.clear();
+        }
+
+        /**
+         * 所有顶点收缩之后，把每个顶点剩下的出边和入边压缩成CSR数组
+         */
+        private ContractionHierarchy assemble() {
+            int[] upOffsets = new int[n + 1];
+            int[] downOffsets = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                upOffsets[v + 1] = upOffsets[v] + out[v].size;
+                downOffsets[v + 1] = downOffsets[v] + in[v].size;
+            }
+            int[] upTargets = new int[upOffsets[n]];
+            double[] upWeights = new double[upOffsets[n]];
+            int[] upMiddles = new int[upOffsets[n]];
+            int[] downSources = new int[downOffsets[n]];
+            double[] downWeights = new double[downOffsets[n]];
+            int[] downMiddles = new int[downOffsets[n]];
+            for (int v = 0; v < n; v++) {
+                System.arraycopy(out[v].ends, 0, upTargets, upOffsets[v], out[v].size);
+                System.arraycopy(out[v].weights, 0, upWeights, upOffsets[v], out[v].size);
+                System.arraycopy(out[v].middles, 0, upMiddles, upOffsets[v], out[v].size);
+                System.arraycopy(in[v].ends, 0, downSources, downOffsets[v], in[v].size);
+                System.arraycopy(in[v].weights, 0, downWeights, downOffsets[v], in[v].size);
+                System.arraycopy(in[v].middles, 0, downMiddles, downOffsets[v], in[v].size);
+            }
+            return new ContractionHierarchy(n, upOffsets, upTargets, upWeights, upMiddles,
+                    downOffsets, downSources, downWeights, downMiddles);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+package com.teapot.chapter4.weighted_graph;
+
+import com.teapot.chapter2.IndexedDaryHeap;
+import com.teapot.chapter4.graph.Edge;
+import com.teapot.chapter4.graph.Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 压缩稀疏行（Compressed Sparse Row, CSR）格式的不可变加权图
+ * 顶点u的出边是targets和weights中[offsets[u], offsets[u + 1])这一段，所有的边保存在三个基本类型数组中：
+ * 每条边占8个字节（int目标顶点 + float权重），而WeightedEdge对象加上ArrayList中的引用需要40字节左右，
+ * 遍历邻居时顺序读取连续的内存
+ * 可以从任意Graph转换得到（无权图的边权重为1），也可以通过Builder直接构建，不经过边对象
+ * 边的编号就是它在targets中的下标
+ *
+ * @param <V> 顶点类型
+ */
+public final class CsrGraph<V> {
+    private final List<V> vertices;
+    private final int[] offsets;
+    private final int[] targets;
+    private final float[] weights;
+
+    /**
+     * 接收一条边的目标顶点和权重
+     */
+    @FunctionalInterface
+    public interface EdgeConsumer {
+        void accept(int v, float weight);
+    }
+
+    private CsrGraph(List<V> vertices, int[] offsets, int[] targets, float[] weights) {
+        this.vertices = vertices;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * 复制graph的邻接表，每个顶点的边保持原来的顺序
+     */
+    public static <V> CsrGraph<V> of(Graph<V, ? extends Edge> graph) {
+        int n = graph.getVertexCount();
+        List<V> vertices = new ArrayList<>(n);
+        int[] offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            vertices.add(graph.vertexAt(u));
+            offsets[u + 1] = offsets[u] + graph.edgesOf(u).size();
+        }
+        int[] targets = new int[offsets[n]];
+        float[] weights = new float[offsets[n]];
+        for (int u = 0; u < n; u++) {
+            int e = offsets[u];
+            for (Edge edge : graph.edgesOf(u)) {
+                targets[e] = edge.v;
+                weights[e] = edge instanceof WeightedEdge ? (float) ((WeightedEdge) edge).weight : 1;
+                e++;
+            }
+        }
+        return new CsrGraph<>(vertices, offsets, targets, weights);
+    }
+
+    /**
+     * 不创建边对象的构建器，边先保存在基本类型数组中，build时按起点做一次计数排序
+     */
+    public static final class Builder<V> {
+        private final List<V> vertices = new ArrayList<>();
+        private int[] from = new int[16];
+        private int[] to = new int[16];
+        private float[] edgeWeights = new float[16];
+        private int edgeCount;
+
+        public int addVertex(V vertex) {
+            vertices.add(vertex);
+            return vertices.size() - 1;
+        }
+
+        /**
+         * 与WeightedGraph.addEdge相同，添加两个方向的边
+         */
+        public void addEdge(int u, int v, float weight) {
+            addArc(u, v, weight);
+            addArc(v, u, weight);
+        }
+
+        /**
+         * 只添加u -> v一个方向的边
+         */
+        public void addArc(int u, int v, float weight) {
+            if (u < 0 || u >= vertices.size() || v < 0 || v >= vertices.size()) {
+                throw new IllegalArgumentException("Vertex index out of range: " + u + " -> " + v);
+            }
+            if (edgeCount == from.length) {
+                int capacity = edgeCount * 2;
+                from = Arrays.copyOf(from, capacity);
+                to = Arrays.copyOf(to, capacity);
+                edgeWeights = Arrays.copyOf(edgeWeights, capacity);
+            }
+            from[edgeCount] = u;
+            to[edgeCount] = v;
+            edgeWeights[edgeCount] = weight;
+            edgeCount++;
+        }
+
+        public CsrGraph<V> build() {
+            int n = vertices.size();
+            int[] offsets = new int[n + 1];
+            for (int e = 0; e < edgeCount; e++) {
+                offsets[from[e] + 1]++;
+            }
+            for (int u = 0; u < n; u++) {
+                offsets[u + 1] += offsets[u];
+            }
+            int[] next = Arrays.copyOf(offsets, n);
+            int[] targets = new int[edgeCount];
+            float[] weights = new float[edgeCount];
+            for (int e = 0; e < edgeCount; e++) {
+                int position = next[from[e]]++;
+                targets[position] = to[e];
+                weights[position] = edgeWeights[e];
+            }
+            return new CsrGraph<>(new ArrayList<>(vertices), offsets, targets, weights);
+        }
+    }
+
+    public int getVertexCount() {
+        return vertices.size();
+    }
+
+    /**
+     * 有向边的条数，无向边算作两条，与Graph.getEdgeCount相同
+     */
+    public int getEdgeCount() {
+        return targets.length;
+    }
+
+    public V vertexAt(int index) {
+        return vertices.get(index);
+    }
+
+    public int degree(int u) {
+        return offsets[u + 1] - offsets[u];
+    }
+
+    /**
+     * u的第一条出边的编号，u的出边是[firstEdge(u), firstEdge(u + 1))
+     */
+    public int firstEdge(int u) {
+        return offsets[u];
+    }
+
+    public int target(int edge) {
+        return targets[edge];
+    }
+
+    public float weight(int edge) {
+        return weights[edge];
+    }
+
+    /**
+     * 边的起点，在offsets中二分查找
+     */
+    public int source(int edge) {
+        int low = 0;
+        int high = vertices.size() - 1;
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (offsets[middle] <= edge) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    public void forEachNeighbor(int u, EdgeConsumer consumer) {
+        for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+            consumer.accept(targets[e], weights[e]);
+        }
+    }
+
+    /**
+     * 广度优先搜索
+     *
+     * @return 每个顶点到start的边数，不可达的顶点为-1
+     */
+    public int[] bfs(int start) {
+        int[] hops = new int[vertices.size()];
+        Arrays.fill(hops, -1);
+        int[] queue = new int[vertices.size()];
+        int head = 0;
+        int tail = 0;
+        hops[start] = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int u = queue[head++];
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                if (hops[v] < 0) {
+                    hops[v] = hops[u] + 1;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        return hops;
+    }
+
+    /**
+     * Dijkstra算法，使用支持decreaseKey的索引堆，每个顶点只在堆中出现一次、只被展开一次
+     */
+    public ShortestPaths dijkstra(int root) {
+        return dijkstra(root, -1);
+    }
+
+    /**
+     * 点到点的Dijkstra算法，target出堆（距离确定）时立即停止，参见WeightedGraph.shortestPath
+     *
+     * @param target 为-1时计算到所有顶点的最短路径
+     */
+    public ShortestPaths dijkstra(int root, int target) {
+        int n = vertices.size();
+        double[] distances = new double[n];
+        Arrays.fill(distances, Double.POSITIVE_INFINITY);
+        int[] predecessors = new int[n];
+        Arrays.fill(predecessors, -1);
+        IndexedDaryHeap heap = new IndexedDaryHeap(4, n);
+        distances[root] = 0;
+        heap.insert(root, 0);
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            if (u == target) {
+                break;
+            }
+            double distU = distances[u];
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                double pathWeight = distU + weights[e];
+                // 权重非负，已出堆的顶点不会再被改进，不需要单独的settled数组
+                if (pathWeight < distances[v]) {
+                    distances[v] = pathWeight;
+                    predecessors[v] = u;
+                    heap.insertOrDecrease(v, pathWeight);
+                }
+            }
+        }
+        return new ShortestPaths(distances, predecessors);
+    }
+
+    /**
+     * Jarnik（Prim）算法生成最小生成树，堆中保存每个树外顶点连接到树上的最小权重
+     *
+     * @return 每个顶点连接到树上的边的编号，起点和不可达的顶点为-1
+     */
+    public int[] mst(int start) {
+        int n = vertices.size();
+        int[] parentEdges = new int[n];
+        Arrays.fill(parentEdges, -1);
+        boolean[] inTree = new boolean[n];
+        IndexedDaryHeap heap = new IndexedDaryHeap(4, n);
+        heap.insert(start, 0);
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            inTree[u] = true;
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                if (inTree[v]) {
+                    continue;
+                }
+                if (!heap.contains(v)) {
+                    heap.insert(v, weights[e]);
+                    parentEdges[v] = e;
+                } else if (weights[e] < heap.keyOf(v)) {
+                    heap.decreaseKey(v, weights[e]);
+                    parentEdges[v] = e;
+                }
+            }
+        }
+        return parentEdges;
+    }
+
+    /**
+     * 把边的编号转换为WeightedEdge，跳过-1，可以交给WeightedGraph.totalWeight和printWeightedPath
+     */
+    public List<WeightedEdge> toWeightedEdges(int[] edges) {
+        List<WeightedEdge> result = new ArrayList<>();
+        for (int e : edges) {
+            if (e >= 0) {
+                result.add(new WeightedEdge(source(e), targets[e], weights[e]));
+            }
+        }
+        return result;
+    }
+}
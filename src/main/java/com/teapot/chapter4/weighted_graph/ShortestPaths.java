@@ -0,0 +1,35 @@
+package com.teapot.chapter4.weighted_graph;
+
+/**
+ * 最短路径树：到根的距离以及每个顶点在最短路径上的前驱，前驱保存在int数组中，不需要Map和边对象
+ * 点到点查询提前停止时，只有目标以及在它之前出堆的顶点的距离是确定的
+ */
+public final class ShortestPaths {
+    // 不可达（或者尚未到达）的顶点为Double.POSITIVE_INFINITY
+    public final double[] distances;
+    // 根和不可达的顶点为-1
+    public final int[] predecessors;
+
+    public ShortestPaths(double[] distances, int[] predecessors) {
+        this.distances = distances;
+        this.predecessors = predecessors;
+    }
+
+    /**
+     * 从根到target的顶点序列，不可达时为空数组
+     */
+    public int[] pathTo(int target) {
+        if (distances[target] == Double.POSITIVE_INFINITY) {
+            return new int[0];
+        }
+        int length = 1;
+        for (int v = target; predecessors[v] >= 0; v = predecessors[v]) {
+            length++;
+        }
+        int[] path = new int[length];
+        for (int v = target; v >= 0; v = predecessors[v]) {
+            path[--length] = v;
+        }
+        return path;
+    }
+}
@@ -1,9 +1,12 @@
 package com.teapot.chapter4.weighted_graph;
 
+import com.teapot.chapter2.IndexedDaryHeap;
 import com.teapot.chapter4.graph.Graph;
 
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 /**
  * P80
@@ -166,6 +169,142 @@ public class WeightedGraph<V> extends Graph<V, WeightedEdge> {
         return new DijkstraResult(distances, pathMap);
     }
 
+    /**
+     * 从root出发的最短路径树，参见shortestPath
+     */
+    public ShortestPaths shortestPaths(int root) {
+        return shortestPath(root, -1);
+    }
+
+    /**
+     * 不使用延迟删除的Dijkstra算法
+     * 1. 索引堆中每个顶点最多出现一次，找到更短的路径时decreaseKey，而不是再插入一个过期的节点
+     * 2. 顶点出堆时距离确定，标记为settled，之后不再检查指向它的边，每个顶点只被展开一次
+     * 3. 前驱保存在int数组中
+     * 4. target出堆时立即停止，点到点查询只需要探索距离不超过目标的顶点
+     *
+     * @param target 为-1时计算到所有顶点的最短路径
+     */
+    public ShortestPaths shortestPath(int source, int target) {
+        int n = getVertexCount();
+        double[] distances = new double[n];
+        int[] predecessors = new int[n];
+        shortestPath(source, target, distances, 0, predecessors, new boolean[n], new IndexedDaryHeap(4, n));
+        return new ShortestPaths(distances, predecessors);
+    }
+
+    /**
+     * shortestPath的实现，把结果写入调用方提供的数组，批量计算时每个线程复用同一个settled数组和堆
+     *
+     * @param distances    从offset开始的n个元素保存距离
+     * @param predecessors 为null时不记录前驱
+     * @param heap         容量不小于顶点数的空堆，返回时仍然是空的
+     */
+    private void shortestPath(int source, int target, double[] distances, int offset, int[] predecessors,
+                              boolean[] settled, IndexedDaryHeap heap) {
+        int n = getVertexCount();
+        Arrays.fill(distances, offset, offset + n, Double.POSITIVE_INFINITY);
+        if (predecessors != null) {
+            Arrays.fill(predecessors, -1);
+        }
+        Arrays.fill(settled, false);
+        distances[offset + source] = 0;
+        heap.insert(source, 0);
+        while (!heap.isEmpty()) {
+            int u = heap.poll();
+            settled[u] = true;
+            if (u == target) {
+                heap.clear();
+                break;
+            }
+            double distU = distances[offset + u];
+            for (WeightedEdge we : edgesOf(u)) {
+                if (settled[we.v]) {
+                    continue;
+                }
+                double pathWeight = distU + we.weight;
+                if (pathWeight < distances[offset + we.v]) {
+                    distances[offset + we.v] = pathWeight;
+                    if (predecessors != null) {
+                        predecessors[we.v] = u;
+                    }
+                    heap.insertOrDecrease(we.v, pathWeight);
+                }
+            }
+        }
+    }
+
+    /**
+     * 批量计算多个根的最短路径树
+     * 各个线程在同一份邻接表上运行与shortestPath相同的Dijkstra（double权重，结果与逐个调用shortestPaths完全相同），
+     * 计算期间不能修改图；根被分成若干段，每一段由一个线程依次处理并复用同一个索引堆和settled数组，
+     * 只为结果分配距离和前驱数组
+     *
+     * @return 与roots一一对应的最短路径树
+     */
+    public ShortestPaths[] shortestPathTrees(int[] roots, ForkJoinPool pool) {
+        int n = getVertexCount();
+        ShortestPaths[] trees = new ShortestPaths[roots.length];
+        forEachChunk(roots.length, pool, (from, to) -> {
+            boolean[] settled = new boolean[n];
+            IndexedDaryHeap heap = new IndexedDaryHeap(4, n);
+            for (int i = from; i < to; i++) {
+                double[] distances = new double[n];
+                int[] predecessors = new int[n];
+                shortestPath(roots[i], -1, distances, 0, predecessors, settled, heap);
+                trees[i] = new ShortestPaths(distances, predecessors);
+            }
+        });
+        return trees;
+    }
+
+    public ShortestPaths[] shortestPathTrees(int[] roots) {
+        return shortestPathTrees(roots, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 所有顶点对之间的最短距离，按行优先顺序保存在一个长度为n * n的数组中，i到j的距离是[i * n + j]，不可达为无穷大
+     * 边权重非负，Johnson算法的重新赋权可以省略，它就是从每个顶点运行一次Dijkstra：
+     * 稀疏图上O(n * m * log n)，比Floyd–Warshall的O(n^3)少得多；每一行直接写入结果数组，不记录前驱
+     */
+    public double[] allPairsDistances(ForkJoinPool pool) {
+        int n = getVertexCount();
+        if ((long) n * n > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many vertices for a flat distance matrix: " + n);
+        }
+        double[] matrix = new double[n * n];
+        forEachChunk(n, pool, (from, to) -> {
+            boolean[] settled = new boolean[n];
+            IndexedDaryHeap heap = new IndexedDaryHeap(4, n);
+            for (int root = from; root < to; root++) {
+                shortestPath(root, -1, matrix, root * n, null, settled, heap);
+            }
+        });
+        return matrix;
+    }
+
+    public double[] allPairsDistances() {
+        return allPairsDistances(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 处理[from, to)一段任务
+     */
+    private interface RangeTask {
+        void run(int from, int to);
+    }
+
+    /**
+     * 把[0, count)分成pool并行度4倍的若干段，在pool中并行处理，段数多于线程数以便工作窃取平衡负载
+     * join直接重新抛出任务中的运行时异常
+     */
+    private static void forEachChunk(int count, ForkJoinPool pool, RangeTask task) {
+        int chunks = Math.max(1, Math.min(count, pool.getParallelism() * 4));
+        pool.submit(() -> IntStream.range(0, chunks).parallel()
+                .forEach(chunk -> task.run((int) ((long) count * chunk / chunks),
+                        (int) ((long) count * (chunk + 1) / chunks)))).join();
+    }
+
     public Map<V, Double> distanceArrayToDistanceMap(double[] distances) {
         HashMap<V, Double> distanceMap = new HashMap<>();
         for (int i = 0; i < distances.length; i++) {
@@ -253,5 +392,48 @@ public class WeightedGraph<V> extends Graph<V, WeightedEdge> {
         List<WeightedEdge> path = pathMapToPath(cityGraph2.indexOf("Los Angeles"), cityGraph2.indexOf("Boston"),
                 dijkstraResult.pathMap);
         cityGraph2.printWeightedPath(path);
+
+        // 点到点查询，Boston的距离确定时立即停止
+        ShortestPaths toBoston = cityGraph2.shortestPath(cityGraph2.indexOf("Los Angeles"),
+                cityGraph2.indexOf("Boston"));
+        System.out.println("Distance from Los Angeles to Boston: "
+                + toBoston.distances[cityGraph2.indexOf("Boston")]);
+
+        System.out.println();
+        // 转换为CSR格式之后在基本类型数组上运行同样的算法
+        CsrGraph<String> csr = CsrGraph.of(cityGraph2);
+        System.out.println("Minimum spanning tree (CSR):");
+        cityGraph2.printWeightedPath(csr.toWeightedEdges(csr.mst(0)));
+        ShortestPaths shortestPaths = csr.dijkstra(cityGraph2.indexOf("Los Angeles"));
+        System.out.println("Shortest path from Los Angeles to Boston (CSR):");
+        for (int vertex : shortestPaths.pathTo(cityGraph2.indexOf("Boston"))) {
+            System.out.print(csr.vertexAt(vertex) + " ");
+        }
+        System.out.println(shortestPaths.distances[cityGraph2.indexOf("Boston")]);
+
+        // 一次计算所有城市之间的距离
+        double[] allPairs = cityGraph2.allPairsDistances();
+        int n = cityGraph2.getVertexCount();
+        System.out.println("Distance from Seattle to Miami (all pairs): "
+                + allPairs[cityGraph2.indexOf("Seattle") * n + cityGraph2.indexOf("Miami")]);
+        // 批量结果与逐个调用shortestPaths的结果逐位相同
+        int[] roots = IntStream.range(0, n).toArray();
+        ShortestPaths[] trees = cityGraph2.shortestPathTrees(roots);
+        boolean identical = true;
+        for (int root : roots) {
+            ShortestPaths single = cityGraph2.shortestPaths(root);
+            identical &= Arrays.equals(single.distances, trees[root].distances)
+                    && Arrays.equals(single.predecessors, trees[root].predecessors)
+                    && Arrays.equals(single.distances, Arrays.copyOfRange(allPairs, root * n, (root + 1) * n));
+        }
+        System.out.println("Batch results identical to shortestPaths: " + identical);
+
+        // 收缩层次：预处理一次，之后每次查询只搜索很少的顶点
+        ContractionHierarchy hierarchy = ContractionHierarchy.build(cityGraph2);
+        System.out.println("Shortest path from Los Angeles to Boston (contraction hierarchies):");
+        for (int vertex : hierarchy.path(cityGraph2.indexOf("Los Angeles"), cityGraph2.indexOf("Boston"))) {
+            System.out.print(cityGraph2.vertexAt(vertex) + " ");
+        }
+        System.out.println(hierarchy.distance(cityGraph2.indexOf("Los Angeles"), cityGraph2.indexOf("Boston")));
     }
 }